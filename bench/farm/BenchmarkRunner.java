@@ -0,0 +1,37 @@
+package farm;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the farm's benchmarks and writes the results to a JSON report.
+ * <p>
+ * The benchmarks in {@code bench} must be compiled against the program and JMH,
+ * with the JMH annotation processor enabled.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Run the benchmarks.
+     * @param args An optional path for the JSON report, followed by an optional regular
+     *             expression selecting which benchmarks to run.
+     * @throws RunnerException If the benchmarks fail to run.
+     */
+    public static void main(String[] args) throws RunnerException {
+        String report = args.length > 0 ? args[0] : "jmh-result.json";
+        String include = args.length > 1 ? args[1] : "farm\\..*";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .forks(1)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .resultFormat(ResultFormatType.JSON)
+                .result(report)
+                .build();
+        new Runner(options).run();
+    }
+}
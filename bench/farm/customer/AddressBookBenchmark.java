@@ -0,0 +1,64 @@
+package farm.customer;
+
+import farm.core.CustomerNotFoundException;
+import farm.core.DuplicateCustomerException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks importing customers into, and looking customers up from, a large address book.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AddressBookBenchmark {
+    @Param({"1000", "100000"})
+    private int customers;
+
+    private Customer[] records;
+    private AddressBook addressBook;
+    private int next;
+
+    /**
+     * Creates the customer records, and an address book already holding all of them.
+     */
+    @Setup(Level.Trial)
+    public void createCustomers() throws DuplicateCustomerException {
+        this.records = new Customer[customers];
+        this.addressBook = new AddressBook();
+        for (int i = 0; i < customers; i++) {
+            records[i] = new Customer("Customer " + i, 30000000 + i, "Address " + i);
+            addressBook.addCustomer(records[i]);
+        }
+    }
+
+    @Benchmark
+    public AddressBook addAllCustomers() throws DuplicateCustomerException {
+        AddressBook fresh = new AddressBook();
+        for (Customer customer : records) {
+            fresh.addCustomer(customer);
+        }
+        return fresh;
+    }
+
+    @Benchmark
+    public Customer getCustomer() throws CustomerNotFoundException {
+        Customer customer = records[next];
+        next = (next + 1) % customers;
+        return addressBook.getCustomer(customer.getName(), customer.getPhoneNumber());
+    }
+
+    @Benchmark
+    public boolean containsMissingCustomer() {
+        return addressBook.containsCustomer(new Customer("Nobody", 1, "Nowhere"));
+    }
+}
@@ -0,0 +1,88 @@
+package farm.inventory;
+
+import farm.core.FailedTransactionException;
+import farm.core.InvalidStockRequestException;
+import farm.inventory.product.Product;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks several checkout lanes selling from one shared inventory at once, comparing the
+ * lock-striped and lock-free inventories as the number of threads grows.
+ * <p>
+ * Every sale is restocked straight away, so the stock level stays steady for the whole run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConcurrentInventoryBenchmark {
+    private static final int UNITS = 10000;
+
+    @Param({"striped", "atomic"})
+    private String implementation;
+
+    private Inventory inventory;
+
+    /**
+     * Stocks a fresh inventory of the chosen implementation with plenty of every product,
+     * spread evenly across the qualities.
+     */
+    @Setup
+    public void stockInventory() throws InvalidStockRequestException {
+        this.inventory = switch (implementation) {
+            case "striped" -> new StripedInventory();
+            case "atomic" -> new AtomicInventory();
+            default -> throw new IllegalArgumentException(implementation);
+        };
+        for (Barcode barcode : Barcode.values()) {
+            for (Quality quality : Quality.values()) {
+                inventory.addProduct(barcode, quality, UNITS / Quality.values().length);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<Product> sellAndRestockOneThread() throws FailedTransactionException {
+        return sellAndRestock();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Product> sellAndRestockFourThreads() throws FailedTransactionException {
+        return sellAndRestock();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<Product> sellAndRestockAllCores() throws FailedTransactionException {
+        return sellAndRestock();
+    }
+
+    /**
+     * Sells a couple of units of a random product, then puts them back on the shelf.
+     * @return The products that were sold.
+     */
+    private List<Product> sellAndRestock() throws FailedTransactionException {
+        Barcode[] barcodes = Barcode.values();
+        Barcode barcode = barcodes[ThreadLocalRandom.current().nextInt(barcodes.length)];
+        List<Product> sold = inventory.removeProduct(barcode, 2);
+        for (Product product : sold) {
+            inventory.addProduct(product.getBarcode(), product.getQuality());
+        }
+        return sold;
+    }
+}
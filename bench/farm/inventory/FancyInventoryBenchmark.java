@@ -0,0 +1,142 @@
+package farm.inventory;
+
+import farm.core.FailedTransactionException;
+import farm.core.InvalidStockRequestException;
+import farm.inventory.product.Product;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks stocking and selling products through a FancyInventory at different stock depths.
+ * <p>
+ * Stocking benchmarks build their own inventories, so they need no setup. Selling benchmarks
+ * take their stock from states prepared once per iteration, rather than once per call, so the
+ * preparation is never timed alongside a removal that takes less than a microsecond.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FancyInventoryBenchmark {
+    // The number of inventories emptied in each iteration of removeAllOfOneProduct.
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int units;
+
+    /**
+     * An inventory which is stocked once per iteration and kept stocked as single products
+     * are removed from it.
+     */
+    @State(Scope.Thread)
+    public static class Stocked {
+        private FancyInventory inventory;
+        private int units;
+
+        @Setup(Level.Iteration)
+        public void stockInventory(FancyInventoryBenchmark benchmark)
+                throws InvalidStockRequestException {
+            this.units = benchmark.units;
+            this.inventory = stock(this.units);
+        }
+
+        /**
+         * Puts back the stock of a product once it has all been removed.
+         * Restocking takes constant time, and happens once every given number of removals.
+         * @param barcode The barcode of the product to restock.
+         * @throws InvalidStockRequestException Never, as the inventory is fancy.
+         */
+        private void restockIfEmpty(Barcode barcode) throws InvalidStockRequestException {
+            if (!this.inventory.existsProduct(barcode)) {
+                for (Quality quality : Quality.values()) {
+                    this.inventory.addProduct(barcode, quality, this.units / Quality.values().length);
+                }
+            }
+        }
+    }
+
+    /**
+     * A batch of stocked inventories, prepared before each iteration,
+     * each of which is emptied of one product by a single call.
+     */
+    @State(Scope.Thread)
+    public static class Batch {
+        private final FancyInventory[] inventories = new FancyInventory[BATCH_SIZE];
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void stockInventories(FancyInventoryBenchmark benchmark)
+                throws InvalidStockRequestException {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                this.inventories[i] = stock(benchmark.units);
+            }
+            this.next = 0;
+        }
+    }
+
+    /**
+     * Stocks a fresh inventory with the given number of units of every product,
+     * spread evenly across the qualities.
+     * @param units The number of units of each product.
+     * @return The stocked inventory.
+     * @throws InvalidStockRequestException Never, as the inventory is fancy.
+     */
+    private static FancyInventory stock(int units) throws InvalidStockRequestException {
+        FancyInventory inventory = new FancyInventory();
+        for (Barcode barcode : Barcode.values()) {
+            for (Quality quality : Quality.values()) {
+                inventory.addProduct(barcode, quality, units / Quality.values().length);
+            }
+        }
+        return inventory;
+    }
+
+    @Benchmark
+    public FancyInventory addProductInBulk() throws InvalidStockRequestException {
+        FancyInventory fresh = new FancyInventory();
+        fresh.addProduct(Barcode.EGG, Quality.REGULAR, units);
+        return fresh;
+    }
+
+    @Benchmark
+    public FancyInventory addProductOneAtATime() {
+        FancyInventory fresh = new FancyInventory();
+        for (int i = 0; i < units; i++) {
+            fresh.addProduct(Barcode.EGG, Quality.REGULAR);
+        }
+        return fresh;
+    }
+
+    /**
+     * Empties one product from each inventory of a batch in turn.
+     * Each iteration is timed as a single shot over the whole batch,
+     * so the score is the time to empty {@value #BATCH_SIZE} inventories.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(batchSize = BATCH_SIZE)
+    @Measurement(batchSize = BATCH_SIZE)
+    public List<Product> removeAllOfOneProduct(Batch batch) throws FailedTransactionException {
+        return batch.inventories[batch.next++].removeProduct(Barcode.MILK, units);
+    }
+
+    @Benchmark
+    public List<Product> removeSingleProduct(Stocked stocked) throws InvalidStockRequestException {
+        List<Product> removed = stocked.inventory.removeProduct(Barcode.WOOL);
+        stocked.restockIfEmpty(Barcode.WOOL);
+        return removed;
+    }
+}
@@ -0,0 +1,101 @@
+package farm.sales;
+
+import farm.customer.Customer;
+import farm.inventory.product.Egg;
+import farm.inventory.product.Jam;
+import farm.inventory.product.Milk;
+import farm.inventory.product.Wool;
+import farm.inventory.product.data.Barcode;
+import farm.sales.transaction.SpecialSaleTransaction;
+import farm.sales.transaction.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks rendering a typical categorised receipt.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReceiptPrinterBenchmark {
+    private final List<String> headings = List.of("Item", "Qty", "Price (ea.)", "Subtotal");
+    private final List<List<String>> entries = List.of(
+            List.of("egg", "12", "$0.50", "$6.00"),
+            List.of("milk", "2", "$4.40", "$7.92", "Discount applied! 10% off milk"),
+            List.of("jam", "1", "$6.70", "$6.70"),
+            List.of("wool", "3", "$28.50", "$85.50")
+    );
+
+    private Transaction transaction;
+    private StringBuilder buffer;
+    private ReceiptWriter writer;
+
+    /**
+     * Finalises a special sale with the same purchases as the entries above,
+     * and a writer which is reused for every receipt.
+     */
+    @Setup
+    public void finaliseTransaction() {
+        Customer customer = new Customer("Ali", 33651111, "UQ");
+        this.transaction = new SpecialSaleTransaction(customer, Map.of(Barcode.MILK, 10));
+        for (int i = 0; i < 12; i++) {
+            customer.getCart().addProduct(new Egg());
+        }
+        customer.getCart().addProduct(new Milk());
+        customer.getCart().addProduct(new Milk());
+        customer.getCart().addProduct(new Jam());
+        for (int i = 0; i < 3; i++) {
+            customer.getCart().addProduct(new Wool());
+        }
+        this.transaction.finalise();
+        this.buffer = new StringBuilder(2048);
+        this.writer = new ReceiptWriter(this.buffer);
+    }
+
+    /**
+     * Renders the transaction's receipt from scratch, as {@link Transaction#getReceipt()} does
+     * when it has no rendered receipt to reuse.
+     */
+    @Benchmark
+    public String transactionReceipt() throws IOException {
+        StringBuilder receipt = new StringBuilder();
+        transaction.writeReceipt(new ReceiptWriter(receipt));
+        return receipt.toString();
+    }
+
+    /**
+     * Requests the transaction's receipt again, which mostly reuses the rendered receipt.
+     * The receipt is rendered again whenever a garbage collection has cleared it.
+     */
+    @Benchmark
+    public String cachedTransactionReceipt() {
+        return transaction.getReceipt();
+    }
+
+    @Benchmark
+    public int writeTransactionReceipt() throws IOException {
+        buffer.setLength(0);
+        transaction.writeReceipt(writer);
+        return buffer.length();
+    }
+
+    @Benchmark
+    public String createReceipt() {
+        return ReceiptPrinter.createReceipt(headings, entries, "$106.12", "Ali");
+    }
+
+    @Benchmark
+    public String createReceiptWithSavings() {
+        return ReceiptPrinter.createReceipt(headings, entries, "$106.12", "Ali", "$0.88");
+    }
+}
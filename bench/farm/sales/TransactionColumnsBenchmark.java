@@ -0,0 +1,77 @@
+package farm.sales;
+
+import farm.customer.Customer;
+import farm.inventory.product.Egg;
+import farm.inventory.product.Jam;
+import farm.inventory.product.Milk;
+import farm.inventory.product.Wool;
+import farm.inventory.product.data.Barcode;
+import farm.sales.transaction.CategorisedTransaction;
+import farm.sales.transaction.SpecialSaleTransaction;
+import farm.sales.transaction.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks scanning every transaction stored in columns for aggregate statistics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionColumnsBenchmark {
+    @Param({"100000", "1000000"})
+    private int transactions;
+
+    private TransactionColumns columns;
+
+    /**
+     * Stores a mix of basic, categorised and special sale transactions in fresh columns.
+     */
+    @Setup(Level.Trial)
+    public void storeTransactions() {
+        this.columns = new TransactionColumns();
+        Customer customer = new Customer("Ali", 33651111, "UQ");
+        for (int i = 0; i < transactions; i++) {
+            Transaction transaction = switch (i % 3) {
+                case 0 -> new Transaction(customer);
+                case 1 -> new CategorisedTransaction(customer);
+                default -> new SpecialSaleTransaction(customer, Map.of(Barcode.MILK, 10));
+            };
+            customer.getCart().addProduct(new Egg());
+            customer.getCart().addProduct(new Milk());
+            customer.getCart().addProduct(i % 2 == 0 ? new Jam() : new Wool());
+            transaction.finalise();
+            columns.add(transaction);
+        }
+    }
+
+    @Benchmark
+    public long grossEarnings() {
+        return columns.getGrossEarnings(0, columns.size());
+    }
+
+    @Benchmark
+    public long grossEarningsOfProduct() {
+        return columns.getGrossEarnings(Barcode.MILK, 0, columns.size());
+    }
+
+    @Benchmark
+    public Barcode mostPopularProduct() {
+        return columns.getMostPopularProduct(0, columns.size());
+    }
+
+    @Benchmark
+    public int highestGrossingTransaction() {
+        return columns.getHighestGrossingTransaction(0, columns.size());
+    }
+}
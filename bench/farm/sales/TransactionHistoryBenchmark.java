@@ -0,0 +1,85 @@
+package farm.sales;
+
+import farm.customer.Customer;
+import farm.inventory.product.Egg;
+import farm.inventory.product.Jam;
+import farm.inventory.product.Milk;
+import farm.inventory.product.Wool;
+import farm.inventory.product.data.Barcode;
+import farm.sales.transaction.CategorisedTransaction;
+import farm.sales.transaction.SpecialSaleTransaction;
+import farm.sales.transaction.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the statistics queries of a transaction history holding many past transactions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransactionHistoryBenchmark {
+    @Param({"100000"})
+    private int transactions;
+
+    private TransactionHistory history;
+
+    /**
+     * Records a mix of basic, categorised and special sale transactions into a fresh history.
+     */
+    @Setup(Level.Trial)
+    public void recordTransactions() {
+        this.history = new TransactionHistory();
+        Customer customer = new Customer("Ali", 33651111, "UQ");
+        for (int i = 0; i < transactions; i++) {
+            Transaction transaction = switch (i % 3) {
+                case 0 -> new Transaction(customer);
+                case 1 -> new CategorisedTransaction(customer);
+                default -> new SpecialSaleTransaction(customer, Map.of(Barcode.MILK, 10));
+            };
+            customer.getCart().addProduct(new Egg());
+            customer.getCart().addProduct(new Milk());
+            customer.getCart().addProduct(i % 2 == 0 ? new Jam() : new Wool());
+            transaction.finalise();
+            history.recordTransaction(transaction);
+        }
+    }
+
+    @Benchmark
+    public int grossEarnings() {
+        return history.getGrossEarnings();
+    }
+
+    @Benchmark
+    public Barcode mostPopularProduct() {
+        return history.getMostPopularProduct();
+    }
+
+    @Benchmark
+    public Transaction highestGrossingTransaction() {
+        return history.getHighestGrossingTransaction();
+    }
+
+    /**
+     * The queries made by the history mode's 'stats' command for a single product.
+     */
+    @Benchmark
+    public void productStats(Blackhole blackhole) {
+        blackhole.consume(history.getTotalTransactionsMade());
+        blackhole.consume(history.getAverageSpendPerVisit());
+        blackhole.consume(history.getTotalProductsSold(Barcode.MILK));
+        blackhole.consume(history.getGrossEarnings(Barcode.MILK));
+        blackhole.consume(history.getAverageProductDiscount(Barcode.MILK));
+    }
+}
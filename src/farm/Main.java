@@ -1,11 +1,20 @@
 package farm;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import farm.core.DuplicateCustomerException;
 import farm.core.Farm;
+import farm.core.FarmSnapshot;
+import farm.core.InvalidStockRequestException;
+import farm.core.ReceiptPipeline;
+import farm.core.SnapshotScheduler;
 import farm.core.ShopFront;
 import farm.customer.AddressBook;
 import farm.customer.Customer;
@@ -18,6 +27,7 @@ import farm.inventory.product.Wool;
 import farm.inventory.product.data.Barcode;
 import farm.inventory.product.data.Quality;
 import farm.sales.TransactionHistory;
+import farm.sales.TransactionLog;
 import farm.sales.transaction.SpecialSaleTransaction;
 import farm.sales.transaction.Transaction;
 import farm.core.FarmManager;
@@ -29,17 +39,84 @@ import farm.core.FarmManager;
  */
 public class Main {
 
+    // The most checked out transactions that may wait for their receipt to be printed.
+    private static final int RECEIPT_QUEUE_CAPACITY = 64;
+
     /**
      * Start the farm program.
-     * @param args Parameters to the program, currently not supported.
+     * @param args Parameters to the program. An optional path to a transaction log may be given,
+     *             in which case sales are kept in the log and restored on the next run.
+     *             It may be followed by an optional path to a snapshot file, in which case the
+     *             stock and customers are saved there periodically and restored on the next run.
+     *             The option {@code --async-receipts} may be given anywhere among them, in which
+     *             case receipts are printed in the background so the till can take the next
+     *             command straight away.
+     *             When the program is not run from an interactive console, such as when its
+     *             input is piped from a script, the shop front runs in buffered mode.
      */
-    public static void main(String[] args) throws DuplicateCustomerException {
+    public static void main(String[] args)
+            throws DuplicateCustomerException, InvalidStockRequestException, IOException {
+        boolean asyncReceipts = false;
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--async-receipts")) {
+                asyncReceipts = true;
+            } else {
+                paths.add(arg);
+            }
+        }
+
         Inventory inventory = new BasicInventory();  // Create a new Inventory instance
         AddressBook addressBook = new AddressBook();  // Create a new AddressBook instance
-        Farm farm = new Farm(inventory, addressBook);  // Pass Inventory and AddressBook to the Farm constructor
-        ShopFront shopFront = new ShopFront();  // Create a new ShopFront instance
+        // Input piped or redirected from a script is read and written in buffered mode.
+        ShopFront shopFront = System.console() == null
+                ? new ShopFront(System.in, System.out, System.out.charset())
+                : new ShopFront();  // Create a new ShopFront instance
+
+        if (paths.isEmpty()) {
+            Farm farm = new Farm(inventory, addressBook);  // Pass Inventory and AddressBook to the Farm constructor
+            run(farm, shopFront, asyncReceipts);  // Run the FarmManager
+            return;
+        }
+
+        // Restore the stock and customers from the last snapshot, if there is one.
+        Path snapshot = paths.size() > 1 ? Path.of(paths.get(1)) : null;
+        if (snapshot != null && Files.exists(snapshot)) {
+            FarmSnapshot.read(snapshot).restore(inventory, addressBook);
+        }
 
-        FarmManager manager = new FarmManager(farm, shopFront);  // Pass Farm and ShopFront to the FarmManager constructor
-        manager.run();  // Run the FarmManager
+        // Restore the sales history from the log, and keep recording to it.
+        try (TransactionLog log = new TransactionLog(Path.of(paths.get(0)))) {
+            Farm farm = new Farm(inventory, addressBook, new TransactionHistory(log));
+            if (snapshot == null) {
+                run(farm, shopFront, asyncReceipts);
+                return;
+            }
+            SnapshotScheduler scheduler =
+                    new SnapshotScheduler(farm, snapshot, Duration.ofMinutes(1));
+            try {
+                run(farm, shopFront, asyncReceipts);
+            } finally {
+                scheduler.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the farm manager until the user quits.
+     * @param farm The farm to manage.
+     * @param shopFront The shop front to interact with the user through.
+     * @param asyncReceipts Whether receipts should be printed in the background.
+     */
+    private static void run(Farm farm, ShopFront shopFront, boolean asyncReceipts) {
+        ReceiptPipeline receipts = asyncReceipts
+                ? new ReceiptPipeline(receipt -> {
+                    shopFront.displayReceipt(receipt);
+                    // Show the receipt now, rather than when the till next waits for input.
+                    shopFront.flush();
+                }, RECEIPT_QUEUE_CAPACITY)
+                : null;
+        // The farm manager prints any receipts still queued before it returns.
+        new FarmManager(farm, shopFront, false, receipts).run();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package farm.core;
+
+/**
+ * The outcome of checking out a single transaction as part of a batch.
+ */
+public enum CheckoutResult {
+    /**
+     * The transaction was finalised and recorded in the farm's history.
+     */
+    RECORDED,
+
+    /**
+     * The transaction contained no products, so it was finalised without being recorded.
+     */
+    EMPTY,
+
+    /**
+     * There was not enough stock for the transaction, so it was left active and unrecorded.
+     */
+    INSUFFICIENT_STOCK
+}
@@ -0,0 +1,230 @@
+package farm.core;
+
+import farm.inventory.BasicInventory;
+import farm.inventory.Inventory;
+import farm.inventory.product.Product;
+import farm.inventory.product.data.Barcode;
+import farm.sales.TransactionHistory;
+import farm.sales.TransactionManager;
+import farm.sales.transaction.Transaction;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A single checkout lane of the farm, serving one customer at a time with its own ongoing
+ * transaction.
+ * <p>
+ * Several sessions may be used at once, each from its own thread, provided the farm's inventory
+ * can be shared between threads (such as a {@link farm.inventory.StripedInventory}). Products
+ * are reserved out of the inventory as they are added to a cart, so two sessions can never sell
+ * the same unit of stock. A customer should only be served by one session at a time.
+ * <p>
+ * Stock is only moved while holding the farm's stock lock, which sessions share with each other,
+ * so a snapshot of the farm never sees a product on its way between the inventory and a cart.
+ */
+public class CheckoutSession {
+    private final Inventory inventory;
+    private final StockReservations reservations;
+    private final TransactionHistory transactionHistory;
+    private final TransactionManager transactionManager;
+    private final Lock stockLock;
+    private Transaction lastTransaction;
+
+    /**
+     * Constructor for a CheckoutSession selling from the given inventory.
+     * @param inventory The inventory that products are sold from.
+     * @param reservations The reservations through which stock is held for customers' carts.
+     * @param transactionHistory The history that completed transactions are recorded in.
+     * @param stockLock The lock held while moving stock into, out of or between carts.
+     */
+    CheckoutSession(Inventory inventory, StockReservations reservations,
+                    TransactionHistory transactionHistory, Lock stockLock) {
+        this.inventory = inventory;
+        this.reservations = reservations;
+        this.transactionHistory = transactionHistory;
+        this.transactionManager = new TransactionManager();
+        this.stockLock = stockLock;
+    }
+
+    /**
+     * Retrieves the transaction manager holding this session's ongoing transaction.
+     * The session keeps no other record of its ongoing transaction, so a transaction started
+     * or closed through the manager is started or closed in the session as well.
+     * @return The session's transaction manager.
+     */
+    TransactionManager getTransactionManager() {
+        return this.transactionManager;
+    }
+
+    /**
+     * Determine whether this session is currently serving a customer.
+     * @return True if and only if a transaction is in progress in this session.
+     */
+    public boolean hasOngoingTransaction() {
+        return this.transactionManager.hasOngoingTransaction();
+    }
+
+    /**
+     * Sets the provided transaction as this session's ongoing transaction.
+     * @param transaction The transaction to be set as ongoing.
+     * @throws FailedTransactionException If this session already has an ongoing transaction.
+     */
+    public void startTransaction(Transaction transaction) throws FailedTransactionException {
+        this.transactionManager.setOngoingTransaction(transaction);
+
+        // Free up any stock held by carts that have been left idle.
+        this.stockLock.lock();
+        try {
+            this.reservations.releaseExpired();
+        } finally {
+            this.stockLock.unlock();
+        }
+    }
+
+    /**
+     * Attempts to reserve a single product of the given type from the inventory
+     * and add it to the customer's shopping cart.
+     * @param barcode The product barcode to add.
+     * @return The number of products successfully added.
+     * @throws FailedTransactionException If no transaction is currently ongoing,
+     *                                    or the cart's reservation has expired.
+     */
+    public int addToCart(Barcode barcode) throws FailedTransactionException {
+        if (!hasOngoingTransaction()) {
+            throw new FailedTransactionException(
+                    "Cannot add to cart when no customer has started shopping."
+            );
+        }
+        return reserve(barcode, 1);
+    }
+
+    /**
+     * Attempts to reserve the specified number of products of the given type from the inventory
+     * and add them to the customer's shopping cart.
+     * @param barcode The barcode of the product to be added.
+     * @param quantity The number of products to add.
+     * @return The number of products successfully added.
+     * @throws FailedTransactionException If there is no currently ongoing transaction,
+     *                                    if the quantity is greater than one when
+     *                                    not using a FancyInventory,
+     *                                    or if the cart's reservation has expired.
+     * @throws IllegalArgumentException If the quantity is less than 1.
+     */
+    public int addToCart(Barcode barcode, int quantity) throws FailedTransactionException {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1.");
+        } else if (quantity > 1 && (this.inventory instanceof BasicInventory)) {
+            throw new FailedTransactionException(
+                    "Current inventory is not fancy enough. Please purchase products one at a time."
+            );
+        } else if (!hasOngoingTransaction()) {
+            throw new FailedTransactionException(
+                    "Cannot add to cart when no customer has started shopping."
+            );
+        }
+        return reserve(barcode, quantity);
+    }
+
+    /**
+     * Closes the ongoing transaction, committing the stock reserved for it.
+     * If there have been items purchased, record the transaction in the farm's history.
+     * <p>
+     * If the cart's reservation expired, its products have already been restocked,
+     * so the transaction is abandoned instead. Likewise, if the transaction cannot be written to
+     * the history's log, the sale is cancelled and its products are restocked, so the stock never
+     * disagrees with the recorded sales.
+     * @return If and only if the transaction contained products.
+     * @throws FailedTransactionException If there is no ongoing transaction to close,
+     *                                    the cart's reservation has expired,
+     *                                    or the transaction could not be recorded.
+     */
+    public boolean checkout() throws FailedTransactionException {
+        this.stockLock.lock();
+        try {
+            if (!hasOngoingTransaction()) {
+                throw new FailedTransactionException("No ongoing transaction");
+            }
+            try {
+                this.reservations.commit(this.transactionManager.getOngoingTransaction());
+            } catch (FailedTransactionException e) {
+                abandonTransaction();
+                throw e;
+            }
+
+            Transaction closedTransaction = this.transactionManager.closeCurrentTransaction();
+            if (!closedTransaction.getPurchases().isEmpty()) {
+                try {
+                    this.transactionHistory.recordTransaction(closedTransaction);
+                } catch (UncheckedIOException e) {
+                    // The sale has not been recorded, so put its stock back rather than losing it.
+                    for (Product product : closedTransaction.getPurchases()) {
+                        this.inventory.addProduct(product.getBarcode(), product.getQuality());
+                    }
+                    throw new FailedTransactionException(
+                            "The sale could not be saved, so its items have been restocked.");
+                }
+                this.lastTransaction = closedTransaction;
+                return true;
+            }
+            return false;
+        } finally {
+            this.stockLock.unlock();
+        }
+    }
+
+    /**
+     * Abandons the ongoing transaction, releasing everything reserved for the customer's cart
+     * back into the inventory.
+     * @throws FailedTransactionException If there is no ongoing transaction to abandon.
+     */
+    public void abandonTransaction() throws FailedTransactionException {
+        this.stockLock.lock();
+        try {
+            Transaction abandoned = this.transactionManager.cancelCurrentTransaction();
+            this.reservations.release(abandoned);
+            abandoned.getAssociatedCustomer().getCart().setEmpty();
+        } finally {
+            this.stockLock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the receipt of the most recent transaction checked out in this session.
+     * @return The receipt, or null if no transaction has been checked out in this session.
+     */
+    public String getLastReceipt() {
+        return this.lastTransaction == null ? null : this.lastTransaction.getReceipt();
+    }
+
+    /**
+     * Reserves products for the ongoing transaction and adds them to the customer's cart.
+     * @param barcode The barcode of the products to add.
+     * @param quantity The number of products to add.
+     * @return The number of products successfully added.
+     * @throws FailedTransactionException If the cart's reservation has expired.
+     */
+    private int reserve(Barcode barcode, int quantity) throws FailedTransactionException {
+        this.stockLock.lock();
+        try {
+            return registerPurchases(this.reservations.reserve(
+                    this.transactionManager.getOngoingTransaction(), barcode, quantity));
+        } finally {
+            this.stockLock.unlock();
+        }
+    }
+
+    /**
+     * Registers the products taken from the inventory as pending purchases.
+     * @param products The products taken from the inventory.
+     * @return The number of products registered.
+     * @throws FailedTransactionException If the products could not be registered.
+     */
+    private int registerPurchases(List<Product> products) throws FailedTransactionException {
+        for (Product product : products) {
+            this.transactionManager.registerPendingPurchase(product);
+        }
+        return products.size();
+    }
+}
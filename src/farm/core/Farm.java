@@ -11,30 +11,93 @@ import farm.sales.TransactionHistory;
 import farm.sales.TransactionManager;
 import farm.sales.transaction.Transaction;
 
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
 /**
  * The top-level model class responsible for managing the internal state of the farm.
+ * <p>
+ * Products added to a customer's cart are reserved out of the inventory until the customer
+ * checks out, so the same unit of stock can never be in two carts at once.
  */
 public class Farm {
+    /**
+     * How long a cart may go without new products before its reserved stock is released.
+     */
+    public static final Duration DEFAULT_RESERVATION_TIMEOUT = Duration.ofMinutes(30);
+
     private Inventory inventory;
     private AddressBook addressBook;
-    private TransactionManager transactionManager;
+    private StockReservations reservations;
+    private CheckoutSession till;
     private TransactionHistory transactionHistory;
 
+    // Held shared by everything that moves stock, and exclusively while taking a snapshot, so a
+    // snapshot never reads the inventory while it changes or sees a product between the
+    // inventory and a cart.
+    private final ReadWriteLock stockLock = new ReentrantReadWriteLock();
+
     /**
      * Constructor for the Farm that creates a new farm instance with an inventory and address book.
      * @param inventory The inventory through which access to the farm's stock is provisioned.
      * @param addressBook The address book storing the farm's customer records.
      */
     public Farm(Inventory inventory, AddressBook addressBook) {
+        this(inventory, addressBook, new TransactionHistory(), DEFAULT_RESERVATION_TIMEOUT);
+    }
+
+    /**
+     * Constructor for the Farm that creates a new farm instance with an inventory and address book,
+     * continuing from an existing history of sales.
+     * @param inventory The inventory through which access to the farm's stock is provisioned.
+     * @param addressBook The address book storing the farm's customer records.
+     * @param transactionHistory The history that the farm's sales are recorded in.
+     */
+    public Farm(Inventory inventory, AddressBook addressBook,
+                TransactionHistory transactionHistory) {
+        this(inventory, addressBook, transactionHistory, DEFAULT_RESERVATION_TIMEOUT);
+    }
+
+    /**
+     * Constructor for the Farm that creates a new farm instance with an inventory and address book,
+     * releasing the stock reserved by carts left idle for longer than the given timeout.
+     * @param inventory The inventory through which access to the farm's stock is provisioned.
+     * @param addressBook The address book storing the farm's customer records.
+     * @param reservationTimeout How long a cart may go without new products
+     *                           before its reserved stock is released.
+     */
+    public Farm(Inventory inventory, AddressBook addressBook, Duration reservationTimeout) {
+        this(inventory, addressBook, new TransactionHistory(), reservationTimeout);
+    }
+
+    /**
+     * Constructor for the Farm that creates a new farm instance with an inventory and address book,
+     * continuing from an existing history of sales and releasing the stock reserved by carts left
+     * idle for longer than the given timeout.
+     * @param inventory The inventory through which access to the farm's stock is provisioned.
+     * @param addressBook The address book storing the farm's customer records.
+     * @param transactionHistory The history that the farm's sales are recorded in.
+     * @param reservationTimeout How long a cart may go without new products
+     *                           before its reserved stock is released.
+     */
+    public Farm(Inventory inventory, AddressBook addressBook,
+                TransactionHistory transactionHistory, Duration reservationTimeout) {
         this.inventory = inventory;
         this.addressBook = addressBook;
 
-        // Initialise a transaction manager and transaction history.
-        this.transactionManager = new TransactionManager();
-        this.transactionHistory = new TransactionHistory();
-
+        // Initialise the stock reservations and the farm's own till.
+        this.reservations = new StockReservations(inventory, reservationTimeout);
+        this.transactionHistory = transactionHistory;
+        this.till = new CheckoutSession(inventory, reservations, transactionHistory,
+                this.stockLock.readLock());
     }
 
     /**
@@ -54,12 +117,22 @@ public class Farm {
         return inventory.getAllProducts();
     }
 
+    /**
+     * Streams all products currently stored in the farm's inventory,
+     * in the same order as {@link #getAllStock()}.
+     * @return A stream of all products in the inventory.
+     * @requires The inventory is not modified while the stream is being consumed.
+     */
+    public Stream<Product> streamAllStock() {
+        return inventory.streamProducts();
+    }
+
     /**
      * Retrieves the farm's transaction manager.
      * @return The farm's transaction manager.
      */
     public TransactionManager getTransactionManager() {
-        return this.transactionManager;
+        return this.till.getTransactionManager();
     }
 
     /**
@@ -70,6 +143,57 @@ public class Farm {
         return this.transactionHistory;
     }
 
+    /**
+     * Opens a new checkout lane that serves customers independently of the farm's other lanes.
+     * Products added to a cart in the lane are reserved out of the farm's inventory immediately.
+     * @return A new checkout session selling from the farm's inventory.
+     * @requires If sessions are used from multiple threads, the farm's inventory is thread-safe.
+     */
+    public CheckoutSession openCheckoutSession() {
+        return new CheckoutSession(this.inventory, this.reservations, this.transactionHistory,
+                this.stockLock.readLock());
+    }
+
+    /**
+     * Releases the stock reserved by every cart that has been left idle for too long.
+     * @return The number of products returned to the inventory.
+     */
+    public int releaseExpiredReservations() {
+        this.stockLock.readLock().lock();
+        try {
+            return this.reservations.releaseExpired();
+        } finally {
+            this.stockLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the farm's stock and customer records, which can be saved and restored
+     * when the farm next starts.
+     * <p>
+     * Products reserved in customers' carts are counted as in stock, since the carts are not
+     * saved, so they are not lost if the farm stops before those customers check out.
+     * Stock is not moved while the snapshot is taken, so it may be taken from any thread.
+     * @return The snapshot.
+     */
+    public FarmSnapshot takeSnapshot() {
+        this.stockLock.writeLock().lock();
+        try {
+            return FarmSnapshot.capture(this.inventory, this.reservations, this.addressBook);
+        } finally {
+            this.stockLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of products of a type currently reserved in customers' carts.
+     * @param barcode The barcode of the product.
+     * @return The number of reserved products with that barcode.
+     */
+    public int getReservedQuantity(Barcode barcode) {
+        return this.reservations.getReservedQuantity(barcode);
+    }
+
     /**
      * Saves the supplied customer in the farm's address book.
      * @param customer The customer to add into the address book.
@@ -87,7 +211,12 @@ public class Farm {
      */
     public void stockProduct(Barcode barcode,
                              Quality quality) {
-        this.inventory.addProduct(barcode, quality);
+        this.stockLock.readLock().lock();
+        try {
+            this.inventory.addProduct(barcode, quality);
+        } finally {
+            this.stockLock.readLock().unlock();
+        }
     }
 
     /**
@@ -109,7 +238,12 @@ public class Farm {
             throw new IllegalArgumentException("Quantity must be at least 1.");
         }
 
-        this.inventory.addProduct(barcode, quality, quantity);
+        this.stockLock.readLock().lock();
+        try {
+            this.inventory.addProduct(barcode, quality, quantity);
+        } finally {
+            this.stockLock.readLock().unlock();
+        }
     }
 
     /**
@@ -120,100 +254,242 @@ public class Farm {
      */
     public void startTransaction(Transaction transaction)
                       throws FailedTransactionException {
-        this.transactionManager.setOngoingTransaction(transaction);
+        this.till.startTransaction(transaction);
     }
 
     /**
-     * Attempts to add a single product of the given type to the customer's shopping cart.
+     * Attempts to reserve a single product of the given type from the inventory
+     * and add it to the customer's shopping cart.
      * @param barcode The product barcode to add.
      * @return The number of products successfully added.
-     * @throws FailedTransactionException If no transaction is currently ongoing.
+     * @throws FailedTransactionException If no transaction is currently ongoing,
+     *                                    or the cart's reservation has expired.
      */
     public int addToCart(Barcode barcode)
               throws FailedTransactionException {
-
-        // Ensure there is a currently ongoing transaction.
-        if (!transactionManager.hasOngoingTransaction()) {
-            throw new FailedTransactionException(
-                    "Cannot add to cart when no customer has started shopping."
-            );
-        }
-
-        // Get all products currently in the farm's inventory.
-        List<Product> products = this.inventory.getAllProducts();
-
-        for (Product product : products) {
-            if (product.getBarcode().equals(barcode)) {
-                // If the product is in the inventory, register it as a pending purchase.
-                this.transactionManager.registerPendingPurchase(product);
-                // This method can only successfully register one product.
-                return 1;
-            }
-        }
-        // No products were successfully added.
-        return 0;
+        return this.till.addToCart(barcode);
     }
 
     /**
-     * Attempts to add the specified number of products of
-     * the given type to the customer's shopping cart.
+     * Attempts to reserve the specified number of products of the given type
+     * from the inventory and add them to the customer's shopping cart.
      *
      * @param barcode The barcode of the product to be added.
      * @param quantity The number of products to add.
      * @return The number of products successfully added.
      * @throws FailedTransactionException If there is no currently ongoing transaction,
-     *                                    or if the quantity is greater than one when
-     *                                    not using a FancyInventory.
+     *                                    if the quantity is greater than one when
+     *                                    not using a FancyInventory,
+     *                                    or if the cart's reservation has expired.
      * @throws IllegalArgumentException If the argument less than 1.
      */
     public int addToCart(Barcode barcode, int quantity)
               throws FailedTransactionException {
+        return this.till.addToCart(barcode, quantity);
+    }
 
-        if (quantity < 1) {
-            // The quantity is negative or zero.
-            throw new IllegalArgumentException("Quantity must be at least 1.");
-        } else if (quantity > 1 && (inventory instanceof BasicInventory)) {
-            // The inventory is basic and the customer is attempting to
-            // buy multiple products in one transaction.
-            throw new FailedTransactionException(
-                    "Current inventory is not fancy enough. Please purchase products one at a time."
-            );
-        } else if  (!transactionManager.hasOngoingTransaction()) {
-            // There is no currently existing transaction.
-            throw new FailedTransactionException(
-                    "Cannot add to cart when no customer has started shopping."
-            );
+    /**
+     * Closes the ongoing transaction, committing the stock reserved for it.
+     * If there have been items purchased, record the transaction in the farm's history.
+     * @return If and only if the transaction contained products.
+     * @throws FailedTransactionException If the transaction is unable to be closed,
+     *                                    the cart's reservation has expired,
+     *                                    or the sale could not be written to the history's log,
+     *                                    in which case its products are restocked.
+     */
+    public boolean checkout()
+                 throws FailedTransactionException {
+        return this.till.checkout();
+    }
+
+    /**
+     * Abandons the ongoing transaction, releasing the stock reserved for it
+     * back into the inventory.
+     * @throws FailedTransactionException If there is no ongoing transaction.
+     */
+    public void abandonTransaction()
+                 throws FailedTransactionException {
+        this.till.abandonTransaction();
+    }
+
+    /**
+     * Checks out a whole batch of transactions at once, such as sales being replayed
+     * at the end of a market.
+     * <p>
+     * The stock needed by the batch is checked up front, for each barcode and quality.
+     * Transactions are accepted in the order provided while there is enough stock for all of
+     * their products, and any transaction that would exceed the remaining stock is left active
+     * so it can be adjusted and retried. The stock for every accepted transaction is then removed
+     * from the inventory with one removal per barcode and quality, and the accepted transactions
+     * are recorded in the history together.
+     * <p>
+     * Batch transactions are not started in the farm's till, and their products are taken
+     * straight from their customers' carts rather than being reserved as they are added.
+     * The inventory gives up exactly the products that were sold, of the same qualities.
+     * @param transactions The transactions to check out, each for a different customer.
+     * @return The outcome of each transaction, in the same order as provided.
+     * @throws FailedTransactionException If the stock was changed by another checkout lane while
+     *                                    the batch was being checked out, in which case no
+     *                                    stock is removed and no transaction is finalised,
+     *                                    or if a sale could not be written to the history's log,
+     *                                    in which case the products of that sale and of every
+     *                                    sale after it are restocked, and those sales are
+     *                                    finalised but not recorded.
+     * @throws IllegalArgumentException If any of the transactions is already finalised, or if
+     *                                  two of the transactions are for the same customer.
+     */
+    public List<CheckoutResult> checkoutAll(Collection<? extends Transaction> transactions)
+            throws FailedTransactionException {
+        this.stockLock.readLock().lock();
+        try {
+            return checkoutBatch(transactions);
+        } finally {
+            this.stockLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks out a whole batch of transactions at once, as described by {@link #checkoutAll},
+     * while holding the stock lock.
+     * @param transactions The transactions to check out, each for a different customer.
+     * @return The outcome of each transaction, in the same order as provided.
+     * @throws FailedTransactionException If the batch could not be checked out.
+     */
+    private List<CheckoutResult> checkoutBatch(Collection<? extends Transaction> transactions)
+            throws FailedTransactionException {
+        // Customers share a single cart between their transactions, so each may only appear once.
+        Set<Customer> customers = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.isFinalised()) {
+                throw new IllegalArgumentException("Transaction has already been finalised.");
+            } else if (!customers.add(transaction.getAssociatedCustomer())) {
+                throw new IllegalArgumentException(
+                        "A batch can only check out one transaction per customer.");
+            }
+        }
+
+        Barcode[] barcodes = Barcode.values();
+        Quality[] qualities = Quality.values();
+        int[][] available = new int[barcodes.length][qualities.length];
+        for (Barcode barcode : barcodes) {
+            for (Quality quality : qualities) {
+                available[barcode.ordinal()][quality.ordinal()] =
+                        this.inventory.getStockedQuantity(barcode, quality);
+            }
         }
 
-        int numAdded = 0;
-        List<Product> products = this.inventory.getAllProducts();
-        // Add as many products as possible given the existing stock.
-        for (Product product : products) {
-            if (product.getBarcode().equals(barcode) && numAdded < quantity) {
-                this.transactionManager.registerPendingPurchase(product);
-                numAdded++;
+        // Accept each transaction while there is enough stock left for all of its products.
+        List<CheckoutResult> results = new ArrayList<>(transactions.size());
+        int[][] demand = new int[barcodes.length][qualities.length];
+        for (Transaction transaction : transactions) {
+            List<Product> purchases = transaction.getPurchases();
+            int[][] required = new int[barcodes.length][qualities.length];
+            for (Product product : purchases) {
+                required[product.getBarcode().ordinal()][product.getQuality().ordinal()]++;
+            }
+
+            boolean enoughStock = true;
+            for (int i = 0; i < barcodes.length && enoughStock; i++) {
+                for (int j = 0; j < qualities.length && enoughStock; j++) {
+                    enoughStock = demand[i][j] + required[i][j] <= available[i][j];
+                }
+            }
+
+            if (purchases.isEmpty()) {
+                results.add(CheckoutResult.EMPTY);
+            } else if (!enoughStock) {
+                results.add(CheckoutResult.INSUFFICIENT_STOCK);
+            } else {
+                results.add(CheckoutResult.RECORDED);
+                for (int i = 0; i < barcodes.length; i++) {
+                    for (int j = 0; j < qualities.length; j++) {
+                        demand[i][j] += required[i][j];
+                    }
+                }
+            }
+        }
+
+        removeStock(demand);
+
+        // Only finalise the transactions once their stock is safely out of the inventory.
+        List<Transaction> recorded = new ArrayList<>();
+        int index = 0;
+        for (Transaction transaction : transactions) {
+            CheckoutResult result = results.get(index++);
+            if (result != CheckoutResult.INSUFFICIENT_STOCK) {
+                transaction.finalise();
+            }
+            if (result == CheckoutResult.RECORDED) {
+                recorded.add(transaction);
             }
         }
-        return numAdded;
+        // Record the batch together, so no other lane's sales are recorded in between.
+        synchronized (this.transactionHistory) {
+            for (int i = 0; i < recorded.size(); i++) {
+                try {
+                    this.transactionHistory.recordTransaction(recorded.get(i));
+                } catch (UncheckedIOException e) {
+                    // The remaining sales have not been recorded, so put their stock back.
+                    for (Transaction unsaved : recorded.subList(i, recorded.size())) {
+                        for (Product product : unsaved.getPurchases()) {
+                            this.inventory.addProduct(product.getBarcode(), product.getQuality());
+                        }
+                    }
+                    throw new FailedTransactionException("Only " + i + " of the batch's "
+                            + recorded.size() + " sales could be saved, "
+                            + "so the items of the rest have been restocked.");
+                }
+            }
+        }
+        return results;
     }
 
     /**
-     * Closes the ongoing transaction.
-     * If there have been items purchased, record the transaction in the farm's history.
-     * @return If and only if the transaction contained products.
-     * @throws FailedTransactionException If the transaction is unable to be closed.
+     * Removes the given number of products of each type and quality from the inventory,
+     * one barcode and quality at a time.
+     * @param quantities The number of products to remove,
+     *                   indexed by barcode ordinal and then by quality ordinal.
+     * @throws FailedTransactionException If the inventory no longer holds enough products,
+     *                                    in which case any removed products are restocked.
      */
-    public boolean checkout()
-                 throws FailedTransactionException {
-        // Attempt to close the current transaction.
-        Transaction closedTransaction = this.transactionManager.closeCurrentTransaction();
-        if (!closedTransaction.getPurchases().isEmpty()) {
-            // If there were items purchased, record the transaction.
-            this.transactionHistory.recordTransaction(closedTransaction);
-            return true;
+    private void removeStock(int[][] quantities) throws FailedTransactionException {
+        List<Product> removed = new ArrayList<>();
+        boolean enoughStock = true;
+        for (Barcode barcode : Barcode.values()) {
+            for (Quality quality : Quality.values()) {
+                int quantity = quantities[barcode.ordinal()][quality.ordinal()];
+                List<Product> products = new ArrayList<>();
+                if (this.inventory instanceof BasicInventory) {
+                    // A basic inventory can only give up products one at a time.
+                    for (int i = 0; i < quantity; i++) {
+                        List<Product> product = this.inventory.removeProduct(barcode, quality, 1);
+                        if (product.isEmpty()) {
+                            break;
+                        }
+                        products.addAll(product);
+                    }
+                } else if (quantity > 0) {
+                    products = this.inventory.removeProduct(barcode, quality, quantity);
+                }
+                removed.addAll(products);
+
+                if (products.size() < quantity) {
+                    enoughStock = false;
+                    break;
+                }
+            }
+            if (!enoughStock) {
+                break;
+            }
+        }
+
+        if (!enoughStock) {
+            for (Product product : removed) {
+                this.inventory.addProduct(product.getBarcode(), product.getQuality());
+            }
+            throw new FailedTransactionException(
+                    "Stock changed while the batch was being checked out. Please try again.");
         }
-        // An empty cart was checked out.
-        return false;
     }
 
     /**
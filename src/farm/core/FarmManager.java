@@ -33,6 +33,7 @@ public class FarmManager {
     private final Farm farm;
     private final ShopFront shop;
     private final boolean enableFancy;
+    private final ReceiptPipeline receipts;
 
     /**
      * Create a new FarmManager instance with a farm and shop provided.
@@ -52,9 +53,23 @@ public class FarmManager {
      * @provided
      */
     public FarmManager(Farm farm, ShopFront shop, boolean enableFancy) {
+        this(farm, shop, enableFancy, null);
+    }
+
+    /**
+     * Create a new FarmManager instance which prints receipts through the given pipeline,
+     * so the till can take the next command while the receipt is printed in the background.
+     * @param farm the model for the program.
+     * @param shop the UI/view for the program.
+     * @param enableFancy flag indicating whether to use the FancyInventory inventory type (Stage 2)
+     * @param receipts the pipeline to print receipts through,
+     *                 or null to print each receipt before taking the next command.
+     */
+    public FarmManager(Farm farm, ShopFront shop, boolean enableFancy, ReceiptPipeline receipts) {
         this.farm = farm;
         this.shop = shop;
         this.enableFancy = enableFancy;
+        this.receipts = receipts;
     }
 
     /**
@@ -64,14 +79,23 @@ public class FarmManager {
     public void run() {
         boolean running = true;
         this.startDisplay();
-        while (running) {
-            switch (this.getModeSelection()) {
-                case "q" -> running = false;
-                case "inventory" -> this.launchInventoryMode();
-                case "address" -> this.launchAddressBookMode();
-                case "sales" -> this.launchSalesMode();
-                case "history" -> this.launchHistoryMode();
+        try {
+            while (running) {
+                switch (this.getModeSelection()) {
+                    case "q" -> running = false;
+                    case "inventory" -> this.launchInventoryMode();
+                    case "address" -> this.launchAddressBookMode();
+                    case "sales" -> this.launchSalesMode();
+                    case "history" -> this.launchHistoryMode();
+                }
+            }
+        } finally {
+            // Print every receipt still queued, then write out anything the shop front
+            // is still holding in buffered mode.
+            if (this.receipts != null) {
+                this.receipts.close();
             }
+            this.shop.flush();
         }
     }
 
@@ -283,17 +307,19 @@ public class FarmManager {
                 case "add" -> handleInventoryAddRequest(input);
                 case "list" -> {
                     int count = 1;
-                    List<Product> stock = farm.getAllStock();
-                    if (stock.isEmpty()) {
+                    Iterator<Product> stock = farm.streamAllStock().iterator();
+                    if (!stock.hasNext()) {
                         shop.displayMessage("Inventory is empty.");
                     } else {
-                        StringBuilder builder = new StringBuilder("{" + stock.getFirst());
-                        for (Product product : stock.subList(1, stock.size())) {
+                        // Display each line of four products as soon as it is complete.
+                        StringBuilder builder = new StringBuilder("{" + stock.next());
+                        while (stock.hasNext()) {
                             builder.append(",").append("\t\t");
                             if (count % 4 == 0) {
-                                builder.append("\n");
+                                shop.displayMessage(builder.toString());
+                                builder.setLength(0);
                             }
-                            builder.append(product.toString());
+                            builder.append(stock.next().toString());
                             count++;
                         }
                         shop.displayMessage(builder.append("}").toString());
@@ -425,7 +451,7 @@ public class FarmManager {
         try {
             boolean printReceipt = farm.checkout();
             if (printReceipt) {
-                shop.displayReceipt(farm.getLastReceipt());
+                printLastReceipt();
                 return;
             }
             shop.displayMessage("Thanks for stopping by!");
@@ -435,6 +461,19 @@ public class FarmManager {
         }
     }
 
+    private void printLastReceipt() {
+        if (receipts != null) {
+            try {
+                receipts.submit(farm.getTransactionHistory().getLastTransaction());
+                return;
+            } catch (InterruptedException e) {
+                // Print the receipt now rather than losing it.
+                Thread.currentThread().interrupt();
+            }
+        }
+        shop.displayReceipt(farm.getLastReceipt());
+    }
+
     private void handleTransactionAddRequest(List<String> cmdInput) {
         if (cmdInput.size() == 2 || cmdInput.size() == 3) {
 
@@ -0,0 +1,252 @@
+package farm.core;
+
+import farm.customer.AddressBook;
+import farm.customer.Customer;
+import farm.inventory.BasicInventory;
+import farm.inventory.Inventory;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A copy of the farm's stock and customer records at a moment in time,
+ * which can be saved to a file and restored when the farm next starts.
+ * <p>
+ * The stock is stored as a count for every barcode and quality, so the size of a snapshot
+ * does not depend on how many units are in stock. A saved snapshot is read back through a
+ * {@link MappedByteBuffer}, letting the operating system page the file in directly rather
+ * than copying it through a stream.
+ * <p>
+ * Snapshots are written to a temporary file which then replaces the previous snapshot,
+ * so an interrupted save never leaves a partly written snapshot behind.
+ */
+public class FarmSnapshot {
+    private static final int MAGIC = 0x4641524D;
+    private static final int VERSION = 1;
+
+    private final int[][] quantities;
+    private final List<Customer> customers;
+
+    /**
+     * Constructor for a FarmSnapshot holding the given stock counts and customers.
+     * @param quantities The number of products of each barcode and quality,
+     *                   indexed by their ordinals.
+     * @param customers The customers, in the order they were added to the address book.
+     */
+    private FarmSnapshot(int[][] quantities, List<Customer> customers) {
+        this.quantities = quantities;
+        this.customers = Collections.unmodifiableList(customers);
+    }
+
+    /**
+     * Takes a snapshot of the stock held in an inventory and the customers in an address book.
+     * <p>
+     * Only the stock counts and customer details are copied, so taking a snapshot is quick
+     * even for a large farm. If sales continue while the snapshot is being taken, the counts
+     * of different products may be taken at slightly different moments.
+     * @param inventory The inventory to take the stock counts from.
+     * @param addressBook The address book to take the customer records from.
+     * @return The snapshot.
+     */
+    public static FarmSnapshot capture(Inventory inventory, AddressBook addressBook) {
+        return capture(inventory, null, addressBook);
+    }
+
+    /**
+     * Takes a snapshot of the stock held in an inventory or reserved in customers' carts,
+     * and the customers in an address book.
+     * <p>
+     * Reserved products are counted as in stock, so restoring the snapshot puts them back
+     * in the inventory. Stock should not be moved while the snapshot is being taken,
+     * or a product moving between the inventory and a cart may be counted twice or not at all.
+     * @param inventory The inventory to take the stock counts from.
+     * @param reservations The reservations to take the reserved counts from,
+     *                     or null to count only the stock in the inventory.
+     * @param addressBook The address book to take the customer records from.
+     * @return The snapshot.
+     */
+    public static FarmSnapshot capture(Inventory inventory, StockReservations reservations,
+                                       AddressBook addressBook) {
+        int[][] quantities = new int[Barcode.values().length][Quality.values().length];
+        for (Barcode barcode : Barcode.values()) {
+            for (Quality quality : Quality.values()) {
+                int quantity = inventory.getStockedQuantity(barcode, quality);
+                if (reservations != null) {
+                    quantity += reservations.getReservedQuantity(barcode, quality);
+                }
+                quantities[barcode.ordinal()][quality.ordinal()] = quantity;
+            }
+        }
+
+        // Copy each customer, so later changes to their details do not alter the snapshot.
+        List<Customer> customers = new ArrayList<>();
+        for (Customer customer : addressBook.getAllRecords()) {
+            customers.add(new Customer(customer.getName(), customer.getPhoneNumber(),
+                    customer.getAddress()));
+        }
+        return new FarmSnapshot(quantities, customers);
+    }
+
+    /**
+     * Reads a snapshot previously saved to the given file.
+     * @param path The path of the snapshot file.
+     * @return The snapshot.
+     * @throws IOException If the file cannot be read, or is not a valid snapshot.
+     */
+    public static FarmSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 20 || buffer.getInt() != MAGIC) {
+                throw new IOException(path + " is not a farm snapshot.");
+            } else if (buffer.getInt() != VERSION) {
+                throw new IOException(path + " was saved by an unsupported version.");
+            }
+
+            // The last four bytes are a checksum of everything before them.
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.slice(0, buffer.limit() - 4));
+            if ((int) checksum.getValue() != buffer.getInt(buffer.limit() - 4)) {
+                throw new IOException(path + " is corrupt.");
+            }
+
+            int barcodes = buffer.getInt();
+            int qualities = buffer.getInt();
+            if (barcodes != Barcode.values().length || qualities != Quality.values().length) {
+                throw new IOException(path + " does not match the current products.");
+            }
+            int[][] quantities = new int[barcodes][qualities];
+            for (int[] counts : quantities) {
+                for (int quality = 0; quality < qualities; quality++) {
+                    counts[quality] = buffer.getInt();
+                }
+            }
+
+            int customerCount = buffer.getInt();
+            List<Customer> customers = new ArrayList<>(customerCount);
+            for (int i = 0; i < customerCount; i++) {
+                String name = readString(buffer);
+                int phoneNumber = buffer.getInt();
+                customers.add(new Customer(name, phoneNumber, readString(buffer)));
+            }
+            return new FarmSnapshot(quantities, customers);
+        }
+    }
+
+    /**
+     * Saves the snapshot to the given file, replacing any snapshot already there.
+     * @param path The path of the snapshot file.
+     * @throws IOException If the snapshot could not be saved.
+     */
+    public void write(Path path) throws IOException {
+        List<byte[]> names = new ArrayList<>(this.customers.size());
+        List<byte[]> addresses = new ArrayList<>(this.customers.size());
+        int size = 4 * 5 + 4 * Barcode.values().length * Quality.values().length + 4;
+        for (Customer customer : this.customers) {
+            byte[] name = customer.getName().getBytes(StandardCharsets.UTF_8);
+            byte[] address = customer.getAddress().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            addresses.add(address);
+            size += 4 + name.length + 4 + 4 + address.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putInt(Barcode.values().length).putInt(Quality.values().length);
+        for (int[] counts : this.quantities) {
+            for (int count : counts) {
+                buffer.putInt(count);
+            }
+        }
+        buffer.putInt(this.customers.size());
+        for (int i = 0; i < this.customers.size(); i++) {
+            buffer.putInt(names.get(i).length).put(names.get(i));
+            buffer.putInt(this.customers.get(i).getPhoneNumber());
+            buffer.putInt(addresses.get(i).length).put(addresses.get(i));
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restocks an inventory and fills an address book with the contents of the snapshot.
+     * @param inventory The inventory to add the stock to.
+     * @param addressBook The address book to add the customers to.
+     * @throws InvalidStockRequestException If the stock could not be added to the inventory.
+     * @throws DuplicateCustomerException If a customer is already in the address book.
+     */
+    public void restore(Inventory inventory, AddressBook addressBook)
+            throws InvalidStockRequestException, DuplicateCustomerException {
+        for (Barcode barcode : Barcode.values()) {
+            for (Quality quality : Quality.values()) {
+                int quantity = getStockedQuantity(barcode, quality);
+                if (inventory instanceof BasicInventory basic) {
+                    // A basic inventory only sells one product at a time, but can be restocked
+                    // in bulk.
+                    basic.restock(barcode, quality, quantity);
+                } else if (quantity > 0) {
+                    inventory.addProduct(barcode, quality, quantity);
+                }
+            }
+        }
+        for (Customer customer : this.customers) {
+            addressBook.addCustomer(new Customer(customer.getName(), customer.getPhoneNumber(),
+                    customer.getAddress()));
+        }
+    }
+
+    /**
+     * Retrieves the number of products of a barcode and quality in the snapshot.
+     * @param barcode The barcode of the product.
+     * @param quality The quality of the product.
+     * @return The number of products in stock when the snapshot was taken.
+     */
+    public int getStockedQuantity(Barcode barcode, Quality quality) {
+        return this.quantities[barcode.ordinal()][quality.ordinal()];
+    }
+
+    /**
+     * Retrieves the customers in the snapshot.
+     * @return The customers, in the order they were added to the address book.
+     * @ensures The returned list cannot modify the snapshot.
+     */
+    public List<Customer> getCustomers() {
+        return this.customers;
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     * @param buffer The buffer, positioned at the start of the string's length.
+     * @return The string read.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
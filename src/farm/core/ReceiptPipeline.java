@@ -0,0 +1,152 @@
+package farm.core;
+
+import farm.sales.transaction.Transaction;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Renders and prints the receipts of checked out transactions in the background,
+ * so that checking out does not wait for the receipt to be formatted and displayed.
+ * <p>
+ * Transactions are queued in the order they are submitted and their receipts are printed in that
+ * order on a separate thread. The queue holds a limited number of transactions; once it is full,
+ * submitting another transaction waits until the oldest receipt has been printed, so a slow output
+ * holds back checkouts rather than letting unprinted receipts pile up without limit.
+ * <p>
+ * Closing the pipeline stops it accepting transactions, then waits for every receipt already
+ * queued to be printed.
+ */
+public class ReceiptPipeline implements AutoCloseable {
+    private static final long POLL_MILLIS = 50;
+
+    private final Consumer<String> sink;
+    private final BlockingQueue<Transaction> queue;
+    private final Thread worker;
+    private volatile boolean closed;
+
+    // Metrics, updated as receipts are queued and printed.
+    private final AtomicInteger peakQueueDepth;
+    private final AtomicLong receiptsPrinted;
+    private volatile RuntimeException lastFailure;
+
+    /**
+     * Constructor for a ReceiptPipeline which starts printing receipts straight away.
+     * @param sink Where each rendered receipt is sent to be displayed.
+     * @param capacity The most transactions that may wait for their receipt to be printed.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public ReceiptPipeline(Consumer<String> sink, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Receipt queue capacity must be positive.");
+        }
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.peakQueueDepth = new AtomicInteger();
+        this.receiptsPrinted = new AtomicLong();
+        this.worker = new Thread(this::printReceipts, "farm-receipts");
+        // Queued receipts are printed on close, so the farm need not wait for the worker to exit.
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a transaction to have its receipt printed,
+     * waiting for space in the queue if it is full.
+     * @param transaction The transaction whose receipt should be printed.
+     * @throws IllegalStateException If the pipeline has been closed.
+     * @throws InterruptedException If interrupted while waiting for space in the queue,
+     *                              in which case the transaction is not queued.
+     */
+    public synchronized void submit(Transaction transaction) throws InterruptedException {
+        if (this.closed) {
+            throw new IllegalStateException("The receipt pipeline has been closed.");
+        }
+        this.queue.put(transaction);
+        this.peakQueueDepth.accumulateAndGet(this.queue.size(), Math::max);
+    }
+
+    /**
+     * Retrieves the number of transactions waiting for their receipt to be printed.
+     * @return The current depth of the queue.
+     */
+    public int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * Retrieves the greatest number of transactions that have waited in the queue at once.
+     * @return The peak depth of the queue.
+     */
+    public int getPeakQueueDepth() {
+        return this.peakQueueDepth.get();
+    }
+
+    /**
+     * Retrieves the most transactions that can wait in the queue before submitting waits.
+     * @return The capacity of the queue.
+     */
+    public int getCapacity() {
+        return this.queue.size() + this.queue.remainingCapacity();
+    }
+
+    /**
+     * Retrieves the number of receipts printed so far.
+     * @return The number of receipts sent to the sink.
+     */
+    public long getReceiptsPrinted() {
+        return this.receiptsPrinted.get();
+    }
+
+    /**
+     * Retrieves the reason the most recent failed receipt could not be printed.
+     * @return The failure, or null if no receipt has failed to print.
+     */
+    public RuntimeException getLastFailure() {
+        return this.lastFailure;
+    }
+
+    /**
+     * Stops accepting transactions, then waits for every queued receipt to be printed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+        }
+        try {
+            this.worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prints queued receipts until the pipeline is closed and the queue is empty.
+     */
+    private void printReceipts() {
+        while (!this.closed || !this.queue.isEmpty()) {
+            Transaction transaction;
+            try {
+                // Wake up periodically to notice when the pipeline is closed.
+                transaction = this.queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (transaction == null) {
+                continue;
+            }
+            try {
+                this.sink.accept(transaction.getReceipt());
+                this.receiptsPrinted.incrementAndGet();
+            } catch (RuntimeException e) {
+                // Keep printing later receipts even if one could not be printed.
+                this.lastFailure = e;
+            }
+        }
+    }
+}
@@ -1,15 +1,33 @@
 package farm.core;
 
 import farm.inventory.product.data.Barcode;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.util.*;
 
 /**
  * The user interface for the farm program.
  * <p>
  * <b>Note: </b> There are more methods in the ShopFront then displayed in the JavaDocs. Only the methods you will be required to use are visible though there are JavaDocs in the provided code if you are interested.
+ * <p>
+ * By default the shop front reads from and writes to the console. It may instead be run in a
+ * buffered mode, suited to driving the farm from scripted input files or pipes, in which input is
+ * read a line at a time through a {@link BufferedReader} and output is collected in a large buffer
+ * that is only flushed when the shop front waits for input, or when {@link #flush()} is called.
  * @provided
  */
-public class ShopFront {
+public class ShopFront implements Flushable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
     public static final String CAT = """
                   ╱|、
                 (˚ˎ 。7
@@ -27,7 +45,111 @@ public class ShopFront {
                    ``""\"`"`""))""`""`
                 """;
 
-    private final Scanner input = new Scanner(System.in);
+    private final Scanner input;
+    private final BufferedReader reader;
+    private final PrintStream out;
+    // Held around every write, so a receipt printed in the background is never split.
+    private final Object lock = new Object();
+
+    /**
+     * Creates a shop front which reads from and writes to the console.
+     * @hidden
+     */
+    public ShopFront() {
+        this.input = new Scanner(System.in);
+        this.reader = null;
+        this.out = System.out;
+    }
+
+    /**
+     * Creates a shop front in buffered mode, which reads lines from the given input and
+     * writes to the given output, flushing the output only when waiting for input.
+     * @param in the input to read commands from.
+     * @param out the output to write prompts and messages to.
+     * @param charset the character encoding of the input and output.
+     */
+    public ShopFront(InputStream in, OutputStream out, Charset charset) {
+        this.input = null;
+        this.reader = new BufferedReader(new InputStreamReader(in, charset), BUFFER_SIZE);
+        this.out = new PrintStream(new BufferedOutputStream(out, BUFFER_SIZE), false, charset);
+    }
+
+    /**
+     * Writes any output still held in the buffer.
+     * Output is always written straight away unless in buffered mode.
+     */
+    @Override
+    public void flush() {
+        synchronized (this.lock) {
+            this.out.flush();
+        }
+    }
+
+    /**
+     * Writes text to the output without ending the line.
+     * @param text the text to write.
+     */
+    private void print(String text) {
+        synchronized (this.lock) {
+            this.out.print(text);
+        }
+    }
+
+    /**
+     * Writes a line to the output.
+     * @param line the line to write.
+     */
+    private void println(String line) {
+        synchronized (this.lock) {
+            this.out.println(line);
+        }
+    }
+
+    /**
+     * Reads the next line of input, after writing any buffered output such as the prompt.
+     * @return the line read, without its line terminator.
+     * @throws NoSuchElementException if there is no more input.
+     */
+    private String nextLine() {
+        if (this.reader == null) {
+            return this.input.nextLine();
+        }
+        flush();
+        try {
+            String line = this.reader.readLine();
+            if (line == null) {
+                throw new NoSuchElementException("No line found");
+            }
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Splits a command into its arguments at each space, in the same way as
+     * {@code String.split(" ")} but without going through the regular expression machinery.
+     * Trailing empty arguments are discarded.
+     * @param command the command to split.
+     * @return the arguments of the command.
+     */
+    static String[] splitArguments(String command) {
+        if (command.indexOf(' ') < 0) {
+            return new String[] {command};
+        }
+        List<String> args = new ArrayList<>();
+        int start = 0;
+        for (int end = command.indexOf(' '); end >= 0; end = command.indexOf(' ', start)) {
+            args.add(command.substring(start, end));
+            start = end + 1;
+        }
+        args.add(command.substring(start));
+        int size = args.size();
+        while (size > 0 && args.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return args.subList(0, size).toArray(new String[0]);
+    }
 
     /**
      * Centres strings for pretty printing.
@@ -62,8 +184,8 @@ public class ShopFront {
                      - sales: Enter the sales mode.
                      - history: View the farm's sales history.
                     """;
-        System.out.println(CAT);
-        System.out.println(BARN);
+        println(CAT);
+        println(BARN);
         return List.of(modePromptHandler("MENU", commands, helpMsg));
     }
 
@@ -148,10 +270,10 @@ public class ShopFront {
     private String[] modePromptHandler(String modeName, Set<String> commands, String helpMsg) {
         String[] args;
         do {
-            System.out.print(modeName + ": Please enter command (h to see options): ");
-            args = input.nextLine().toLowerCase().trim().split(" ");
+            print(modeName + ": Please enter command (h to see options): ");
+            args = splitArguments(nextLine().toLowerCase().trim());
             if (args.length > 0 && args[0].equals("h")) {
-                System.out.println(helpMsg);
+                println(helpMsg);
             }
         } while (args.length < 1 || !commands.contains(args[0]));
         return args;
@@ -174,8 +296,8 @@ public class ShopFront {
      * @hidden
      */
     public String promptForProductName() {
-        System.out.print("Please enter item name (h to see options): ");
-        String response = input.nextLine().toLowerCase().trim();
+        print("Please enter item name (h to see options): ");
+        String response = nextLine().toLowerCase().trim();
         if (response.equals("h")) {
             StringJoiner result = new StringJoiner("\n - ");
             result.add("Options:");
@@ -183,7 +305,7 @@ public class ShopFront {
             for (Barcode product : Barcode.values()) {
                 result.add(product.name().toLowerCase());
             }
-            System.out.println(result);
+            println(result.toString());
             return promptForProductName();
         }
         return response;
@@ -216,8 +338,11 @@ public class ShopFront {
      * @hidden
      */
     public void displayReceipt(String receipt) {
-        displayMessage("Here's your receipt!");
-        displayMessage(receipt);
+        // Keep the receipt together if it is printed while the till is prompting.
+        synchronized (this.lock) {
+            displayMessage("Here's your receipt!");
+            displayMessage(receipt);
+        }
     }
 
     /**
@@ -230,8 +355,8 @@ public class ShopFront {
     public int promptForDiscount(String prompt) {
         int discount = -1;
         do {
-            System.out.print(prompt);
-            String response = input.nextLine().toLowerCase().trim();
+            print(prompt);
+            String response = nextLine().toLowerCase().trim();
             if (response.equals("q") || response.equals("quit")) {
                 break;
             }
@@ -243,7 +368,7 @@ public class ShopFront {
                     discount = 100;
                 }
             } catch (NumberFormatException ignored) {
-                System.out.println("Please enter a valid integer.");
+                println("Please enter a valid integer.");
             }
         } while (discount < 0);
         return discount;
@@ -255,7 +380,7 @@ public class ShopFront {
      * @hidden
      */
     public void displayMessage(String message) {
-        System.out.println(message);
+        println(message);
     }
 
     // -- vv -- USE THESE -- vv -- //
@@ -322,8 +447,8 @@ public class ShopFront {
      * @return the customer's name entered by the user.
      */
     public String promptForCustomerName() {
-        System.out.print("Enter customer name: ");
-        return input.nextLine().trim();
+        print("Enter customer name: ");
+        return nextLine().trim();
     }
 
     /**
@@ -331,8 +456,8 @@ public class ShopFront {
      * @return the customer's phone entered by the user.
      */
     public int promptForCustomerNumber() throws NumberFormatException {
-        System.out.print("Enter customer number: ");
-        return Integer.parseInt(input.nextLine().trim());
+        print("Enter customer number: ");
+        return Integer.parseInt(nextLine().trim());
     }
 
     /**
@@ -340,8 +465,8 @@ public class ShopFront {
      * @return the customer's address entered by the user.
      */
     public String promptForCustomerAddress() {
-        System.out.print("Enter customer address: ");
-        return input.nextLine().trim();
+        print("Enter customer address: ");
+        return nextLine().trim();
     }
 
 
@@ -0,0 +1,80 @@
+package farm.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically saves a snapshot of a farm's stock and customers in the background.
+ * <p>
+ * Snapshots are taken and saved on a separate thread, so sales carry on while a snapshot is
+ * being saved. A final snapshot is saved when the scheduler is closed.
+ */
+public class SnapshotScheduler implements AutoCloseable {
+    private final Farm farm;
+    private final Path path;
+    private final ScheduledExecutorService executor;
+    private volatile Exception lastFailure;
+
+    /**
+     * Constructor for a SnapshotScheduler which starts saving snapshots straight away.
+     * @param farm The farm to take snapshots of.
+     * @param path The path of the snapshot file.
+     * @param period How long to wait after saving one snapshot before taking the next.
+     * @throws IllegalArgumentException If the period is not positive.
+     */
+    public SnapshotScheduler(Farm farm, Path path, Duration period) {
+        if (period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Snapshot period must be positive.");
+        }
+        this.farm = farm;
+        this.path = path;
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "farm-snapshot");
+            // The farm should be able to exit without waiting for the next snapshot.
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::saveSnapshot,
+                period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Retrieves the reason the most recent snapshot could not be saved.
+     * @return The failure, or null if the most recent snapshot was saved successfully.
+     */
+    public Exception getLastFailure() {
+        return this.lastFailure;
+    }
+
+    /**
+     * Stops taking periodic snapshots, then saves a final snapshot.
+     * @throws IOException If the final snapshot could not be saved.
+     */
+    @Override
+    public void close() throws IOException {
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.farm.takeSnapshot().write(this.path);
+    }
+
+    /**
+     * Takes and saves a snapshot, remembering the failure if it could not be saved
+     * so later snapshots are still attempted.
+     */
+    private void saveSnapshot() {
+        try {
+            this.farm.takeSnapshot().write(this.path);
+            this.lastFailure = null;
+        } catch (IOException | RuntimeException e) {
+            this.lastFailure = e;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package farm.core;
+
+import farm.inventory.Inventory;
+import farm.inventory.product.Product;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import farm.sales.transaction.Transaction;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Keeps track of the stock held in customers' carts for ongoing transactions.
+ * <p>
+ * Reserving products moves them out of the inventory, so they cannot be sold to anyone else,
+ * and into a reservation belonging to the transaction. Checking out commits the reservation,
+ * while abandoning the transaction releases its products back into the inventory. A reservation
+ * that has not been added to for longer than the timeout is considered stale, and its products
+ * are released so that abandoned carts do not hold stock forever. The transaction is then unable
+ * to reserve more products or check out, and must be abandoned.
+ */
+public class StockReservations {
+    private final Inventory inventory;
+    private final long timeoutNanos;
+    private static final int QUALITIES = Quality.values().length;
+
+    private final Map<Transaction, Reservation> reservations;
+    // The number of products reserved, indexed by barcode ordinal and then quality ordinal.
+    private final AtomicIntegerArray reservedQuantities;
+
+    /**
+     * Constructor for StockReservations taking stock from the given inventory.
+     * @param inventory The inventory that reserved products are taken from and returned to.
+     * @param timeout How long a reservation may go without new products before it is stale.
+     * @throws IllegalArgumentException If the timeout is not positive.
+     */
+    public StockReservations(Inventory inventory, Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Reservation timeout must be positive.");
+        }
+        this.inventory = inventory;
+        this.timeoutNanos = timeout.toNanos();
+        this.reservations = new ConcurrentHashMap<>();
+        this.reservedQuantities = new AtomicIntegerArray(Barcode.values().length * QUALITIES);
+    }
+
+    /**
+     * Moves up to the given number of products from the inventory into the transaction's
+     * reservation, taking the highest quality products available.
+     * @param transaction The transaction reserving the products.
+     * @param barcode The barcode of the products to reserve.
+     * @param quantity The number of products to reserve.
+     * @return The products that were reserved, which may be fewer than requested.
+     * @throws FailedTransactionException If the inventory does not support the quantity,
+     *                                    or the transaction's reservation has expired.
+     * @throws IllegalArgumentException If the transaction is null.
+     */
+    public List<Product> reserve(Transaction transaction, Barcode barcode, int quantity)
+            throws FailedTransactionException {
+        if (transaction == null) {
+            throw new IllegalArgumentException("Cannot reserve stock without a transaction.");
+        }
+        // Find the reservation before touching the inventory, so stock is never taken
+        // from the inventory without somewhere to hold it.
+        Reservation reservation = this.reservations.computeIfAbsent(
+                transaction, key -> new Reservation());
+        synchronized (reservation) {
+            if (reservation.released) {
+                throw new FailedTransactionException(
+                        "The cart was left idle for too long and its items have been restocked.");
+            }
+            List<Product> products = quantity == 1
+                    ? this.inventory.removeProduct(barcode)
+                    : this.inventory.removeProduct(barcode, quantity);
+            reservation.products.addAll(products);
+            reservation.lastActivity = System.nanoTime();
+            for (Product product : products) {
+                this.reservedQuantities.incrementAndGet(indexOf(product));
+            }
+            return products;
+        }
+    }
+
+    /**
+     * Commits the transaction's reservation, so its products are considered sold.
+     * A transaction that never reserved any products can always be committed.
+     * @param transaction The transaction being checked out.
+     * @throws FailedTransactionException If the transaction's reservation has expired,
+     *                                    and its products have already been restocked.
+     */
+    public void commit(Transaction transaction) throws FailedTransactionException {
+        Reservation reservation = this.reservations.remove(transaction);
+        if (reservation == null) {
+            return;
+        }
+        synchronized (reservation) {
+            if (reservation.released) {
+                throw new FailedTransactionException(
+                        "The cart was left idle for too long and its items have been restocked.");
+            }
+            reservation.released = true;
+            forget(reservation.products);
+        }
+    }
+
+    /**
+     * Releases the transaction's reservation, returning its products to the inventory.
+     * @param transaction The transaction being abandoned.
+     */
+    public void release(Transaction transaction) {
+        Reservation reservation = this.reservations.remove(transaction);
+        if (reservation != null) {
+            release(reservation);
+        }
+    }
+
+    /**
+     * Releases every reservation that has not been added to within the timeout.
+     * The expired reservations are kept, so their transactions can no longer check out,
+     * until those transactions are committed or released.
+     * @return The number of products returned to the inventory.
+     */
+    public int releaseExpired() {
+        long now = System.nanoTime();
+        int released = 0;
+        for (Reservation reservation : this.reservations.values()) {
+            if (now - reservation.lastActivity > this.timeoutNanos) {
+                released += release(reservation);
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Retrieves the number of products of a type currently held in reservations.
+     * @param barcode The barcode of the product.
+     * @return The number of reserved products with that barcode.
+     */
+    public int getReservedQuantity(Barcode barcode) {
+        int reserved = 0;
+        for (Quality quality : Quality.values()) {
+            reserved += getReservedQuantity(barcode, quality);
+        }
+        return reserved;
+    }
+
+    /**
+     * Retrieves the number of products of a type and quality currently held in reservations.
+     * @param barcode The barcode of the product.
+     * @param quality The quality of the product.
+     * @return The number of reserved products with that barcode and quality.
+     */
+    public int getReservedQuantity(Barcode barcode, Quality quality) {
+        return this.reservedQuantities.get(barcode.ordinal() * QUALITIES + quality.ordinal());
+    }
+
+    /**
+     * Returns a reservation's products to the inventory, unless it was already committed.
+     * @param reservation The reservation to release.
+     * @return The number of products returned to the inventory.
+     */
+    private int release(Reservation reservation) {
+        synchronized (reservation) {
+            if (reservation.released) {
+                return 0;
+            }
+            reservation.released = true;
+            forget(reservation.products);
+            returnToInventory(reservation.products);
+
+            int released = reservation.products.size();
+            reservation.products.clear();
+            return released;
+        }
+    }
+
+    /**
+     * Stops counting the given products as reserved.
+     * @param products The products no longer reserved.
+     */
+    private void forget(List<Product> products) {
+        for (Product product : products) {
+            this.reservedQuantities.decrementAndGet(indexOf(product));
+        }
+    }
+
+    /**
+     * Finds where the reserved quantity of a product's barcode and quality is counted.
+     * @param product The product.
+     * @return The index of the product's count.
+     */
+    private static int indexOf(Product product) {
+        return product.getBarcode().ordinal() * QUALITIES + product.getQuality().ordinal();
+    }
+
+    /**
+     * Puts the given products back into the inventory.
+     * @param products The products to restock.
+     */
+    private void returnToInventory(List<Product> products) {
+        for (Product product : products) {
+            this.inventory.addProduct(product.getBarcode(), product.getQuality());
+        }
+    }
+
+    /**
+     * The products reserved by a single transaction.
+     */
+    private static class Reservation {
+        private final List<Product> products = new ArrayList<>();
+        private volatile long lastActivity = System.nanoTime();
+        private boolean released;
+    }
+}
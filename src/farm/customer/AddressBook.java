@@ -4,21 +4,38 @@ import farm.core.CustomerNotFoundException;
 import farm.core.DuplicateCustomerException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
  * The address book where the farmer stores their customers' details.
  * Keeps track of all the customers that come and visit the Farm.
+ * <p>
+ * Customers are stored in the order they were added, and are also indexed by their
+ * name and phone number so that they can be looked up without searching every record.
+ * The index is kept up to date when a stored customer's name or phone number is changed.
+ * <p>
+ * Customers may be added, looked up and renamed from different threads, such as when the
+ * address book is saved in the background or several checkout sessions run at once.
+ * Every access to the records and the index holds the address book's lock.
  */
 public class AddressBook {
     private ArrayList<Customer> customers;
+    private Map<CustomerKey, Customer> customersByKey;
+    // The details each customer is being changed to, held in the index until the change ends.
+    private final Map<Customer, CustomerKey> pendingKeys;
+    private final CustomerKeyListener keyIndexUpdater = new KeyIndexUpdater();
 
     /**
      * The constructor for the AddressBook.
      */
     public AddressBook() {
         this.customers = new ArrayList<>();
+        this.customersByKey = new HashMap<>();
+        this.pendingKeys = new IdentityHashMap<>();
     }
 
 
@@ -28,12 +45,14 @@ public class AddressBook {
      * @throws DuplicateCustomerException If the customer already exists.
      * @ensures The address book contains no duplicate customers.
      */
-    public void addCustomer(Customer customer) throws DuplicateCustomerException {
+    public synchronized void addCustomer(Customer customer) throws DuplicateCustomerException {
         if (this.containsCustomer(customer)) {
             // Include a message with the string representation of the duplicate customer.
             throw new DuplicateCustomerException(customer.toString());
         }
         this.customers.add(customer);
+        this.customersByKey.put(CustomerKey.of(customer), customer);
+        customer.addKeyListener(this.keyIndexUpdater);
 
     }
 
@@ -42,7 +61,7 @@ public class AddressBook {
      * @return A list of all customers in the address book.
      * @ensures The returned list is a shallow copy.
      */
-    public List<Customer> getAllRecords() {
+    public synchronized List<Customer> getAllRecords() {
         // Return a shallow copy of the customers list
         return new ArrayList<>(customers);
     }
@@ -52,13 +71,8 @@ public class AddressBook {
      * @param customer The customer to check
      * @return True if and only if the customer already exists.
      */
-    public boolean containsCustomer(Customer customer) {
-        for (Customer customers : this.customers) {
-            if (customers.equals(customer)) {
-                return true;
-            }
-        }
-        return false;
+    public synchronized boolean containsCustomer(Customer customer) {
+        return this.customersByKey.containsKey(CustomerKey.of(customer));
     }
 
     /**
@@ -70,13 +84,58 @@ public class AddressBook {
      * @requires That the name is non-empty and has been stripped of its trailing whitespace
      *           and that the phone number is a positive number.
      */
-    public Customer getCustomer(String name, int phoneNumber) throws CustomerNotFoundException {
-        for (Customer customer : this.customers) {
-            // A customer is uniquely identified by their name and phone number.
-            if (customer.getName().equals(name) && customer.getPhoneNumber() == phoneNumber) {
-                return customer;
+    public synchronized Customer getCustomer(String name, int phoneNumber) throws CustomerNotFoundException {
+        // A customer is uniquely identified by their name and phone number.
+        Customer customer = this.customersByKey.get(new CustomerKey(name, phoneNumber));
+        if (customer == null) {
+            throw new CustomerNotFoundException();
+        }
+        return customer;
+    }
+
+    /**
+     * Re-keys customers in the index when their name or phone number changes.
+     * The new details are claimed in the index as soon as they are checked, so no other
+     * customer can be added or renamed to them before the change ends.
+     */
+    private class KeyIndexUpdater implements CustomerKeyListener {
+        @Override
+        public void beforeKeyChange(Customer customer, String newName, int newPhoneNumber) {
+            synchronized (AddressBook.this) {
+                CustomerKey newKey = new CustomerKey(newName, newPhoneNumber);
+                Customer existing = customersByKey.get(newKey);
+                if (existing != null && existing != customer) {
+                    // Two customers in the address book cannot share the same details.
+                    throw new IllegalArgumentException(
+                            "Another customer with those details already exists");
+                }
+                customersByKey.remove(CustomerKey.of(customer));
+                customersByKey.put(newKey, customer);
+                pendingKeys.put(customer, newKey);
             }
         }
-        throw new CustomerNotFoundException();
+
+        @Override
+        public void afterKeyChange(Customer customer) {
+            synchronized (AddressBook.this) {
+                // Release the claimed details if the change was rolled back.
+                CustomerKey newKey = pendingKeys.remove(customer);
+                if (newKey != null && customersByKey.get(newKey) == customer) {
+                    customersByKey.remove(newKey);
+                }
+                customersByKey.put(CustomerKey.of(customer), customer);
+            }
+        }
+    }
+
+    /**
+     * The details that uniquely identify a customer, consistent with Customer.equals(Object).
+     * @param name The customer's name.
+     * @param phoneNumber The customer's phone number.
+     */
+    private record CustomerKey(String name, int phoneNumber) {
+        private static CustomerKey of(Customer customer) {
+            return new CustomerKey(customer.getName(), customer.getPhoneNumber());
+        }
     }
 }
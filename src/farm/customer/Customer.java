@@ -2,6 +2,8 @@ package farm.customer;
 
 import farm.sales.Cart;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 
@@ -13,6 +15,7 @@ public class Customer {
     private int phoneNumber;
     private String address;
     private Cart cart;
+    private List<CustomerKeyListener> keyListeners;
 
 
     /**
@@ -36,6 +39,7 @@ public class Customer {
         this.address = address.trim();
         this.phoneNumber = phoneNumber;
         this.cart = new Cart();
+        this.keyListeners = new ArrayList<>();
     }
 
     /**
@@ -49,13 +53,14 @@ public class Customer {
     /**
      * Update the current name of the customer with a new one.
      * @param newName The new name to override the current name.
+     * @throws IllegalArgumentException If the new name is null or blank.
      * @ensures That the name is non-empty and that it's stripped of trailing whitespaces.
      */
     public void setName(String newName) {
         if (newName == null || newName.trim().isEmpty()) {
             throw new IllegalArgumentException("Name cannot be empty");
         }
-        this.name = newName.trim();
+        changeKey(newName.trim(), this.phoneNumber);
     }
 
     /**
@@ -69,13 +74,14 @@ public class Customer {
     /**
      * Set the current phone number of the customer to be newPhone.
      * @param newPhone The phone number to override the current phone number.
+     * @throws IllegalArgumentException If the new phone number is not positive.
      * @requires The phone number is a positive number.
      */
     public void setPhoneNumber(int newPhone) {
         if (newPhone <= 0) {
             throw new IllegalArgumentException("Phone number must be positive");
         }
-        this.phoneNumber = newPhone;
+        changeKey(this.name, newPhone);
     }
 
     /**
@@ -106,6 +112,57 @@ public class Customer {
         return this.cart;
     }
 
+    /**
+     * Registers a listener to be notified whenever the customer's name or phone number changes.
+     * @param listener The listener to notify.
+     */
+    public void addKeyListener(CustomerKeyListener listener) {
+        this.keyListeners.add(listener);
+    }
+
+    /**
+     * Stops notifying the given listener of changes to the customer's name or phone number.
+     * @param listener The listener to remove.
+     */
+    public void removeKeyListener(CustomerKeyListener listener) {
+        this.keyListeners.remove(listener);
+    }
+
+    /**
+     * Updates the details identifying the customer, notifying all key listeners.
+     * If any listener rejects the change, the customer's details are left unchanged.
+     * @param newName The customer's new name.
+     * @param newPhoneNumber The customer's new phone number.
+     * @throws IllegalArgumentException If a listener rejects the change.
+     */
+    private void changeKey(String newName, int newPhoneNumber) {
+        if (this.name.equals(newName) && this.phoneNumber == newPhoneNumber) {
+            // The customer's equality is unaffected, so there is nothing to notify.
+            this.name = newName;
+            return;
+        }
+
+        int notified = 0;
+        try {
+            for (CustomerKeyListener listener : this.keyListeners) {
+                listener.beforeKeyChange(this, newName, newPhoneNumber);
+                notified++;
+            }
+        } catch (IllegalArgumentException e) {
+            // Let the listeners that were already notified restore the unchanged customer.
+            for (CustomerKeyListener listener : this.keyListeners.subList(0, notified)) {
+                listener.afterKeyChange(this);
+            }
+            throw e;
+        }
+
+        this.name = newName;
+        this.phoneNumber = newPhoneNumber;
+        for (CustomerKeyListener listener : this.keyListeners) {
+            listener.afterKeyChange(this);
+        }
+    }
+
     /**
      * Returns a string representation of this customer class.
      * @return The formatted string representation of the customer.
@@ -0,0 +1,29 @@
+package farm.customer;
+
+/**
+ * A listener notified when the details identifying a customer, i.e. their name and phone number,
+ * are about to change and once they have changed.
+ * <p>
+ * Since these details determine a customer's equality and hashcode, anything that indexes
+ * customers by them (such as a hash map keyed on customers) can use these notifications to
+ * remove the customer before the change and re-insert them afterwards.
+ */
+public interface CustomerKeyListener {
+
+    /**
+     * Called before the customer's name or phone number is changed,
+     * while the customer still has their old details.
+     * @param customer The customer whose details are changing.
+     * @param newName The name the customer will have after the change.
+     * @param newPhoneNumber The phone number the customer will have after the change.
+     * @throws IllegalArgumentException If the change should not be allowed to happen.
+     */
+    void beforeKeyChange(Customer customer, String newName, int newPhoneNumber);
+
+    /**
+     * Called after the customer's name or phone number has changed,
+     * or after a change was cancelled by another listener.
+     * @param customer The customer, with their current details.
+     */
+    void afterKeyChange(Customer customer);
+}
@@ -0,0 +1,206 @@
+package farm.inventory;
+
+import farm.core.FailedTransactionException;
+import farm.core.InvalidStockRequestException;
+import farm.inventory.product.*;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Stream;
+
+
+/**
+ * A fancy inventory that can be shared between multiple threads without any locking.
+ * <p>
+ * Like the {@link FancyInventory}, the inventory keeps a count for every (barcode, quality) pair,
+ * but each count is an atomic cell updated with compare-and-set. Threads selling the same product
+ * only retry when they race on the same cell, and threads selling different products never
+ * interfere, so throughput scales with the number of checkout lanes.
+ * <p>
+ * The cells are spread out so that each sits on its own cache line. Packed together, the cells
+ * of different products would share lines, and every update would invalidate the line for the
+ * threads selling the neighbouring products even though their counts had not changed.
+ * <p>
+ * Each individual add or remove is atomic. Reads that span several cells, such as
+ * {@link #getAllProducts()}, see each cell at a slightly different moment if the stock is
+ * changing at the same time.
+ */
+public class AtomicInventory implements Inventory {
+    private static final int QUALITIES = Quality.values().length;
+    private static final int CELLS = Barcode.values().length * QUALITIES;
+    // The distance between cells: 16 ints fill a 64 byte cache line.
+    private static final int STRIDE = 16;
+
+    private final AtomicIntegerArray stock;
+    private final Product[] products;
+
+
+    /**
+     * A constructor for the AtomicInventory.
+     */
+    public AtomicInventory() {
+        // Leave a line of padding before the first cell, as well as after every cell.
+        this.stock = new AtomicIntegerArray((CELLS + 1) * STRIDE);
+        this.products = new Product[CELLS];
+
+        // Every unit in a stack is represented by the same product instance.
+        for (Barcode barcode : Barcode.values()) {
+            for (Quality quality : Quality.values()) {
+                this.products[slot(barcode, quality.ordinal())] =
+                        getProductByBarcode(barcode, quality);
+            }
+        }
+    }
+
+    @Override
+    public void addProduct(Barcode barcode, Quality quality) {
+        this.stock.incrementAndGet(cell(barcode, quality.ordinal()));
+    }
+
+    @Override
+    public void addProduct(Barcode barcode, Quality quality, int quantity)
+            throws InvalidStockRequestException {
+        // Adding fewer than one product adds nothing, rather than taking stock away.
+        if (quantity > 0) {
+            this.stock.addAndGet(cell(barcode, quality.ordinal()), quantity);
+        }
+    }
+
+    @Override
+    public boolean existsProduct(Barcode barcode) {
+        for (int quality = 0; quality < QUALITIES; quality++) {
+            if (this.stock.get(cell(barcode, quality)) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getStockedQuantity(Barcode barcode) {
+        int quantity = 0;
+        for (int quality = 0; quality < QUALITIES; quality++) {
+            quantity += this.stock.get(cell(barcode, quality));
+        }
+        return quantity;
+    }
+
+    @Override
+    public int getStockedQuantity(Barcode barcode, Quality quality) {
+        return this.stock.get(cell(barcode, quality.ordinal()));
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+        List<Product> allProducts = new ArrayList<>();
+        for (Barcode barcode : Barcode.values()) {
+            for (int quality = 0; quality < QUALITIES; quality++) {
+                allProducts.addAll(Collections.nCopies(this.stock.get(cell(barcode, quality)),
+                        this.products[slot(barcode, quality)]));
+            }
+        }
+        return allProducts;
+    }
+
+    @Override
+    public Stream<Product> streamProducts() {
+        // Stream a copy of the stock, since it may change while the stream is consumed.
+        return getAllProducts().stream();
+    }
+
+    @Override
+    public List<Product> removeProduct(Barcode barcode) {
+        return takeHighestQuality(barcode, 1);
+    }
+
+    @Override
+    public List<Product> removeProduct(Barcode barcode, int quantity)
+            throws FailedTransactionException {
+        return takeHighestQuality(barcode, quantity);
+    }
+
+    @Override
+    public List<Product> removeProduct(Barcode barcode, Quality quality, int quantity) {
+        int cell = cell(barcode, quality.ordinal());
+        int count = this.stock.get(cell);
+        int taken = Math.min(count, quantity);
+        while (taken > 0 && !this.stock.compareAndSet(cell, count, count - taken)) {
+            // Another thread changed this cell, so retry against its new count.
+            count = this.stock.get(cell);
+            taken = Math.min(count, quantity);
+        }
+        return new ArrayList<>(Collections.nCopies(Math.max(taken, 0),
+                this.products[slot(barcode, quality.ordinal())]));
+    }
+
+    /**
+     * Removes up to the given number of products with the corresponding barcode,
+     * emptying the quality cells from the highest quality down.
+     * <p>
+     * Each cell is decremented with compare-and-set, retrying if another thread changed it
+     * in the meantime, so a count can never be taken below zero.
+     * @param barcode The barcode of the products to remove.
+     * @param quantity The maximum number of products to remove.
+     * @return A list containing the removed products, highest quality first.
+     */
+    private List<Product> takeHighestQuality(Barcode barcode, int quantity) {
+        List<Product> removedProducts = new ArrayList<>();
+        int remaining = quantity;
+
+        for (int quality = QUALITIES - 1; quality >= 0 && remaining > 0; quality--) {
+            int cell = cell(barcode, quality);
+            int count = this.stock.get(cell);
+            int taken = Math.min(count, remaining);
+            while (taken > 0 && !this.stock.compareAndSet(cell, count, count - taken)) {
+                // Another thread changed this cell, so retry against its new count.
+                count = this.stock.get(cell);
+                taken = Math.min(count, remaining);
+            }
+            if (taken > 0) {
+                remaining -= taken;
+                removedProducts.addAll(
+                        Collections.nCopies(taken, this.products[slot(barcode, quality)]));
+            }
+        }
+        return removedProducts;
+    }
+
+    /**
+     * Numbers each barcode and quality, ordered by barcode and then by quality.
+     * @param barcode The product's barcode.
+     * @param quality The ordinal of the product's quality.
+     * @return The number of the barcode and quality, from 0 up to the number of cells.
+     */
+    private static int slot(Barcode barcode, int quality) {
+        return barcode.ordinal() * QUALITIES + quality;
+    }
+
+    /**
+     * Finds the position of the count for a barcode and quality within the stock.
+     * @param barcode The product's barcode.
+     * @param quality The ordinal of the product's quality.
+     * @return The index of the corresponding cell.
+     */
+    private static int cell(Barcode barcode, int quality) {
+        return (slot(barcode, quality) + 1) * STRIDE;
+    }
+
+    /**
+     * Helper function that returns the product based on its barcode and quality.
+     * @param barcode The product's barcode.
+     * @param quality The product's quality.
+     * @return The product instance.
+     */
+    private Product getProductByBarcode(Barcode barcode, Quality quality) {
+        return switch (barcode) {
+            case EGG -> new Egg(quality);
+            case JAM -> new Jam(quality);
+            case MILK -> new Milk(quality);
+            case WOOL -> new Wool(quality);
+        };
+    }
+}
@@ -6,28 +6,61 @@ import farm.inventory.product.*;
 import farm.inventory.product.data.Barcode;
 import farm.inventory.product.data.Quality;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 
 /**
  * A very basic inventory that both stores and handles products individually.
  * Only supports operation on single Products at a time.
+ * <p>
+ * Products are kept in the order they were added, and are also indexed by their barcode
+ * so that products can be found and removed without searching the whole inventory.
+ * The number of products of each barcode and quality is also counted as they are added and removed.
  */
 public class BasicInventory implements Inventory {
-    private List<Product> products;
+    private final Map<Barcode, Deque<Node>> productsByBarcode;
+    private final int[][] quantities;
+    private Node first;
+    private Node last;
+    private int size;
 
     /**
      * A constructor for the BasicInventory.
      */
     public BasicInventory() {
-        this.products = new ArrayList<>();
+        this.productsByBarcode = new EnumMap<>(Barcode.class);
+        for (Barcode barcode : Barcode.values()) {
+            this.productsByBarcode.put(barcode, new ArrayDeque<>());
+        }
+        this.quantities = new int[Barcode.values().length][Quality.values().length];
+        this.size = 0;
     }
 
     @Override
     public void addProduct(Barcode barcode, Quality quality) {
         Product product = getProductByBarcode(barcode, quality);
-        this.products.add(product);
+        Node node = new Node(product);
+
+        // Append the product to the end of the insertion order.
+        if (this.last == null) {
+            this.first = node;
+        } else {
+            this.last.next = node;
+            node.previous = this.last;
+        }
+        this.last = node;
+        this.size++;
+
+        this.productsByBarcode.get(barcode).addLast(node);
+        this.quantities[barcode.ordinal()][quality.ordinal()]++;
     }
 
     @Override
@@ -39,31 +72,77 @@ public class BasicInventory implements Inventory {
         );
     }
 
-    @Override
-    public boolean existsProduct(Barcode barcode) {
-        for (Product product : this.products) {
-            if (barcode.equals(product.getBarcode())) {
-                return true;
+    /**
+     * Adds many products of the same barcode and quality at once, such as when the farm's stock
+     * is restored. Products are still sold from a basic inventory one at a time.
+     * <p>
+     * The added products share a single product instance, and are added in one pass
+     * rather than through a separate call for each product.
+     * @param barcode The barcode of the products to add.
+     * @param quality The quality of the products to add.
+     * @param quantity The number of products to add. Nothing is added if it is less than one.
+     */
+    public void restock(Barcode barcode, Quality quality, int quantity) {
+        if (quantity < 1) {
+            return;
+        }
+        Product product = getProductByBarcode(barcode, quality);
+        Deque<Node> nodes = this.productsByBarcode.get(barcode);
+        for (int i = 0; i < quantity; i++) {
+            Node node = new Node(product);
+            if (this.last == null) {
+                this.first = node;
+            } else {
+                this.last.next = node;
+                node.previous = this.last;
             }
+            this.last = node;
+            nodes.addLast(node);
         }
-        return false;
+        this.size += quantity;
+        this.quantities[barcode.ordinal()][quality.ordinal()] += quantity;
+    }
+
+    @Override
+    public boolean existsProduct(Barcode barcode) {
+        return !this.productsByBarcode.get(barcode).isEmpty();
+    }
+
+    @Override
+    public int getStockedQuantity(Barcode barcode) {
+        return this.productsByBarcode.get(barcode).size();
+    }
+
+    @Override
+    public int getStockedQuantity(Barcode barcode, Quality quality) {
+        return this.quantities[barcode.ordinal()][quality.ordinal()];
     }
 
     @Override
     public List<Product> getAllProducts() {
-        return this.products;
+        List<Product> products = new ArrayList<>(this.size);
+        for (Node node = this.first; node != null; node = node.next) {
+            products.add(node.product);
+        }
+        return products;
+    }
+
+    @Override
+    public Stream<Product> streamProducts() {
+        return Stream.iterate(this.first, Objects::nonNull, node -> node.next)
+                .map(node -> node.product);
     }
 
     @Override
     public List<Product> removeProduct(Barcode barcode) {
         List<Product> productsToRemove = new ArrayList<>();
-        for (Product product : this.products) {
-            if (barcode.equals(product.getBarcode())) {
-                productsToRemove.add(product);
-                break;
-            }
+
+        // The first product added with this barcode is the one removed.
+        Node node = this.productsByBarcode.get(barcode).pollFirst();
+        if (node != null) {
+            unlink(node);
+            productsToRemove.add(node.product);
         }
-        this.products.removeAll(productsToRemove);
         return productsToRemove;
     }
 
@@ -76,6 +155,52 @@ public class BasicInventory implements Inventory {
         );
     }
 
+    @Override
+    public List<Product> removeProduct(Barcode barcode, Quality quality, int quantity)
+            throws FailedTransactionException {
+        if (quantity > 1) {
+            throw new FailedTransactionException(
+                    "Current inventory is not fancy enough. Please purchase products one at a time."
+            );
+        }
+        List<Product> productsToRemove = new ArrayList<>();
+        if (quantity < 1) {
+            return productsToRemove;
+        }
+
+        // The first product added with this barcode and quality is the one removed.
+        Iterator<Node> nodes = this.productsByBarcode.get(barcode).iterator();
+        while (nodes.hasNext()) {
+            Node node = nodes.next();
+            if (node.product.getQuality() == quality) {
+                nodes.remove();
+                unlink(node);
+                productsToRemove.add(node.product);
+                break;
+            }
+        }
+        return productsToRemove;
+    }
+
+    /**
+     * Removes the given node from the insertion order.
+     * @param node The node to remove.
+     */
+    private void unlink(Node node) {
+        if (node.previous == null) {
+            this.first = node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+        if (node.next == null) {
+            this.last = node.previous;
+        } else {
+            node.next.previous = node.previous;
+        }
+        this.size--;
+        this.quantities[node.product.getBarcode().ordinal()][node.product.getQuality().ordinal()]--;
+    }
+
     /**
      * Helper function that returns the product based on its barcode and quality.
      * @param barcode The product's barcode.
@@ -90,6 +215,17 @@ public class BasicInventory implements Inventory {
             case WOOL -> new Wool(quality);
         };
     }
-}
 
+    /**
+     * A single stored product, linked to the products added before and after it.
+     */
+    private static class Node {
+        private final Product product;
+        private Node previous;
+        private Node next;
 
+        private Node(Product product) {
+            this.product = product;
+        }
+    }
+}
@@ -1,4 +1,3 @@
-
 package farm.inventory;
 
 import farm.core.FailedTransactionException;
@@ -7,125 +6,149 @@ import farm.inventory.product.*;
 import farm.inventory.product.data.Barcode;
 import farm.inventory.product.data.Quality;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 
 /**
  * A fancy inventory which stores products in stacks, enabling quantity information.
+ * <p>
+ * Rather than holding one product per unit of stock, the inventory keeps a count for every
+ * (barcode, quality) pair, so the memory used does not grow with the depth of the stock.
+ * Each barcode's counts act as buckets ordered by quality, so the best available product
+ * can be taken without sorting the inventory.
+ * <p>
+ * As the stock is held as counts rather than as individual products, the order in which products
+ * were added is not kept: {@link #getAllProducts()} and {@link #streamProducts()} list products
+ * grouped by barcode, and within each barcode from the lowest quality to the highest.
  */
 public class FancyInventory implements Inventory {
-    private List<Product> products;
+    private final int[][] stock;
+    private final int[] stockedQuantities;
+    private final Product[][] products;
 
 
     /**
      * A constructor for the FancyInventory.
      */
     public FancyInventory() {
-        this.products = new ArrayList<>();
+        this.stock = new int[Barcode.values().length][Quality.values().length];
+        this.stockedQuantities = new int[Barcode.values().length];
+        this.products = new Product[Barcode.values().length][Quality.values().length];
+
+        // Every unit in a stack is represented by the same product instance.
+        for (Barcode barcode : Barcode.values()) {
+            for (Quality quality : Quality.values()) {
+                this.products[barcode.ordinal()][quality.ordinal()] =
+                        getProductByBarcode(barcode, quality);
+            }
+        }
     }
 
     @Override
     public void addProduct(Barcode barcode, Quality quality) {
-        Product product = getProductByBarcode(barcode, quality);
-        this.products.add(product);
+        this.stock[barcode.ordinal()][quality.ordinal()]++;
+        this.stockedQuantities[barcode.ordinal()]++;
     }
 
     @Override
     public void addProduct(Barcode barcode, Quality quality, int quantity)
             throws InvalidStockRequestException {
-        Product product = getProductByBarcode(barcode, quality);
-        for (int i = 0; i < quantity; i++) {
-            this.products.add(product);
+        // Adding fewer than one product adds nothing, rather than taking stock away.
+        if (quantity < 1) {
+            return;
         }
+        this.stock[barcode.ordinal()][quality.ordinal()] += quantity;
+        this.stockedQuantities[barcode.ordinal()] += quantity;
     }
 
     @Override
     public boolean existsProduct(Barcode barcode) {
-        for (Product product : this.products) {
-            if (barcode.equals(product.getBarcode())) {
-                return true;
-            }
-        }
-        return false;
+        return getStockedQuantity(barcode) > 0;
     }
 
     @Override
     public List<Product> getAllProducts() {
-        List<Product> organisedProducts = new ArrayList<>();
-
-        // Iterate over all barcode values in order of quality as defined in Barcode.
-        for (Barcode barcode : Barcode.values()) {
-            for (Product product : this.products) {
-                if (barcode.equals(product.getBarcode())) {
-                    organisedProducts.add(product);
-                }
+        // Take a copy of the counts so the returned list is unaffected by later stock changes.
+        int[][] counts = new int[this.stock.length][];
+        int size = 0;
+        for (int i = 0; i < this.stock.length; i++) {
+            counts[i] = this.stock[i].clone();
+            for (int count : counts[i]) {
+                size += count;
             }
         }
-        return organisedProducts;
+        return new StockList(counts, size);
     }
 
     @Override
-    public List<Product> removeProduct(Barcode barcode) {
-        List<Product> productsToRemove = new ArrayList<>();
-
-        // Sort the products in descending quality.
-        this.products.sort(Comparator.comparing(Product::getQuality).reversed());
+    public Stream<Product> streamProducts() {
+        // Each (barcode, quality) cell expands into its count of the shared product instance.
+        return IntStream.range(0, this.stock.length).boxed()
+                .flatMap(barcode -> IntStream.range(0, this.stock[barcode].length)
+                        .boxed()
+                        .flatMap(quality -> Stream.generate(() -> this.products[barcode][quality])
+                                .limit(this.stock[barcode][quality])));
+    }
 
-        for (Product product : this.products) {
-            if (barcode.equals(product.getBarcode())) {
-                productsToRemove.add(product);
-                this.products.remove(product);
-                break;
-            }
-        }
-        return productsToRemove;
+    @Override
+    public List<Product> removeProduct(Barcode barcode) {
+        return takeHighestQuality(barcode, 1);
     }
 
     @Override
     public List<Product> removeProduct(Barcode barcode, int quantity)
             throws FailedTransactionException {
-        List<Product> removedProduct = new ArrayList<>();
-        List<Product> availableProducts = new ArrayList<>();
+        return takeHighestQuality(barcode, quantity);
+    }
 
-        // Add all products of the desired type to a list.
-        for (Product product : this.products) {
-            if (barcode.equals(product.getBarcode())) {
-                availableProducts.add(product);
-            }
-        }
+    @Override
+    public List<Product> removeProduct(Barcode barcode, Quality quality, int quantity) {
+        int[] counts = this.stock[barcode.ordinal()];
+        int taken = Math.max(Math.min(quantity, counts[quality.ordinal()]), 0);
+        counts[quality.ordinal()] -= taken;
+        this.stockedQuantities[barcode.ordinal()] -= taken;
+        return new ArrayList<>(
+                Collections.nCopies(taken, this.products[barcode.ordinal()][quality.ordinal()]));
+    }
 
-        // If the customer has requested more or equal to the amount of stock available.
-        if (availableProducts.size() <= quantity) {
-            removedProduct.addAll(availableProducts);
-        } else {
-            // Sort and remove items with the highest quality.
-            availableProducts.sort(Comparator.comparing(Product::getQuality).reversed());
-            for (int i = 0; i < quantity; i++) {
-                Product product = availableProducts.get(i);
-                removedProduct.add(product);
-            }
-        }
+    @Override
+    public int getStockedQuantity(Barcode barcode) {
+        return this.stockedQuantities[barcode.ordinal()];
+    }
 
-        // Remove the items and return the removed items.
-        this.products.removeAll(removedProduct);
-        return removedProduct;
+    @Override
+    public int getStockedQuantity(Barcode barcode, Quality quality) {
+        return this.stock[barcode.ordinal()][quality.ordinal()];
     }
 
     /**
-     * Get the quantity of a specific product in the inventory.
-     * @param barcode The barcode of the product.
-     * @return The amount of the corresponding product currently in the inventory.
+     * Removes up to the given number of products with the corresponding barcode,
+     * emptying the quality buckets from the highest quality down.
+     * @param barcode The barcode of the products to remove.
+     * @param quantity The maximum number of products to remove.
+     * @return A list containing the removed products, highest quality first.
      */
-    public int getStockedQuantity(Barcode barcode) {
-        int quantity = 0;
-        for (Product product : this.products) {
-            if (barcode.equals(product.getBarcode())) {
-                quantity++;
+    private List<Product> takeHighestQuality(Barcode barcode, int quantity) {
+        int[] counts = this.stock[barcode.ordinal()];
+        int remaining = Math.min(quantity, this.stockedQuantities[barcode.ordinal()]);
+        List<Product> removedProducts = new ArrayList<>(Math.max(remaining, 0));
+
+        for (int quality = counts.length - 1; quality >= 0 && remaining > 0; quality--) {
+            int taken = Math.min(counts[quality], remaining);
+            if (taken > 0) {
+                counts[quality] -= taken;
+                remaining -= taken;
+                removedProducts.addAll(
+                        Collections.nCopies(taken, this.products[barcode.ordinal()][quality]));
             }
         }
-        return quantity;
+        this.stockedQuantities[barcode.ordinal()] -= removedProducts.size();
+        return removedProducts;
     }
 
     /**
@@ -142,5 +165,42 @@ public class FancyInventory implements Inventory {
             case WOOL -> new Wool(quality);
         };
     }
-}
 
+    /**
+     * A read-only list view over a copy of the stock counts.
+     * Elements are looked up from the counts when requested rather than stored individually,
+     * ordered by barcode and then by quality.
+     */
+    private class StockList extends AbstractList<Product> {
+        private final int[][] counts;
+        private final int size;
+
+        private StockList(int[][] counts, int size) {
+            this.counts = counts;
+            this.size = size;
+        }
+
+        @Override
+        public Product get(int index) {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+            }
+            int remaining = index;
+            for (int barcode = 0; barcode < this.counts.length; barcode++) {
+                for (int quality = 0; quality < this.counts[barcode].length; quality++) {
+                    if (remaining < this.counts[barcode][quality]) {
+                        return products[barcode][quality];
+                    }
+                    remaining -= this.counts[barcode][quality];
+                }
+            }
+            // Unreachable, as the index was checked against the size.
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
+}
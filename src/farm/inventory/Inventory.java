@@ -7,6 +7,7 @@ import farm.inventory.product.data.Barcode;
 import farm.inventory.product.data.Quality;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * An interface representing the base requirements for an Inventory.
@@ -39,12 +40,44 @@ public interface Inventory {
      */
     boolean existsProduct(Barcode barcode);
 
+    /**
+     * Get the quantity of a specific product in the inventory.
+     * @param barcode The barcode of the product.
+     * @return The amount of the corresponding product currently in the inventory.
+     */
+    default int getStockedQuantity(Barcode barcode) {
+        return (int) streamProducts().filter(product -> product.getBarcode() == barcode).count();
+    }
+
+    /**
+     * Get the quantity of a specific product of a particular quality in the inventory.
+     * @param barcode The barcode of the product.
+     * @param quality The quality of the product.
+     * @return The amount of the corresponding product of that quality currently in the inventory.
+     */
+    default int getStockedQuantity(Barcode barcode, Quality quality) {
+        return (int) streamProducts()
+                .filter(product -> product.getBarcode() == barcode
+                        && product.getQuality() == quality)
+                .count();
+    }
+
     /**
      * Retrieves the full stock currently held in the inventory.
      * @return A list containing all products currently stored in the inventory.
      */
     List<Product> getAllProducts();
 
+    /**
+     * Streams the full stock currently held in the inventory, in the same order as
+     * {@link #getAllProducts()}, without requiring the whole stock to be held in a list at once.
+     * @return A stream of all products currently stored in the inventory.
+     * @requires The inventory is not modified while the stream is being consumed.
+     */
+    default Stream<Product> streamProducts() {
+        return getAllProducts().stream();
+    }
+
     /**
      * Removes the first product with corresponding barcode from the inventory.
      * @param barcode The barcode of the product to be removed.
@@ -63,4 +96,18 @@ public interface Inventory {
      */
     List<Product> removeProduct(Barcode barcode, int quantity) throws FailedTransactionException;
 
+    /**
+     * Removes the given number of products with corresponding barcode and quality from the
+     * inventory, provided that the implementing inventory supports removing multiple products
+     * at once. The method removes as many items as possible based on the inventory.
+     * @param barcode The barcode of the product to be removed.
+     * @param quality The quality of the product to be removed.
+     * @param quantity The total amount of the product to remove from the inventory.
+     * @return A list containing the removed products, or an empty list if none were in stock.
+     * @throws FailedTransactionException If more than one product is requested
+     *                                    and the inventory is not fancy.
+     */
+    List<Product> removeProduct(Barcode barcode, Quality quality, int quantity)
+            throws FailedTransactionException;
+
 }
\ No newline at end of file
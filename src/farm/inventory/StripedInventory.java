@@ -0,0 +1,139 @@
+package farm.inventory;
+
+import farm.core.FailedTransactionException;
+import farm.core.InvalidStockRequestException;
+import farm.inventory.product.Product;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+
+/**
+ * A fancy inventory that can be safely shared between multiple threads, such as several
+ * checkout lanes selling at once.
+ * <p>
+ * Each barcode's stock is guarded by its own lock, so operations on different products
+ * can proceed in parallel and only operations on the same product wait for one another.
+ */
+public class StripedInventory extends FancyInventory {
+    private final ReentrantLock[] locks;
+
+    /**
+     * A constructor for the StripedInventory.
+     */
+    public StripedInventory() {
+        super();
+        this.locks = new ReentrantLock[Barcode.values().length];
+        for (int i = 0; i < this.locks.length; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void addProduct(Barcode barcode, Quality quality) {
+        ReentrantLock lock = this.locks[barcode.ordinal()];
+        lock.lock();
+        try {
+            super.addProduct(barcode, quality);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addProduct(Barcode barcode, Quality quality, int quantity)
+            throws InvalidStockRequestException {
+        ReentrantLock lock = this.locks[barcode.ordinal()];
+        lock.lock();
+        try {
+            super.addProduct(barcode, quality, quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean existsProduct(Barcode barcode) {
+        return getStockedQuantity(barcode) > 0;
+    }
+
+    @Override
+    public int getStockedQuantity(Barcode barcode) {
+        ReentrantLock lock = this.locks[barcode.ordinal()];
+        lock.lock();
+        try {
+            return super.getStockedQuantity(barcode);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getStockedQuantity(Barcode barcode, Quality quality) {
+        ReentrantLock lock = this.locks[barcode.ordinal()];
+        lock.lock();
+        try {
+            return super.getStockedQuantity(barcode, quality);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+        // Hold every lock, always acquired in barcode order, to see a consistent copy of the stock.
+        for (ReentrantLock lock : this.locks) {
+            lock.lock();
+        }
+        try {
+            return super.getAllProducts();
+        } finally {
+            for (ReentrantLock lock : this.locks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Stream<Product> streamProducts() {
+        // Stream a copy of the stock, since it may change while the stream is consumed.
+        return getAllProducts().stream();
+    }
+
+    @Override
+    public List<Product> removeProduct(Barcode barcode) {
+        ReentrantLock lock = this.locks[barcode.ordinal()];
+        lock.lock();
+        try {
+            return super.removeProduct(barcode);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Product> removeProduct(Barcode barcode, int quantity)
+            throws FailedTransactionException {
+        ReentrantLock lock = this.locks[barcode.ordinal()];
+        lock.lock();
+        try {
+            return super.removeProduct(barcode, quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Product> removeProduct(Barcode barcode, Quality quality, int quantity) {
+        ReentrantLock lock = this.locks[barcode.ordinal()];
+        lock.lock();
+        try {
+            return super.removeProduct(barcode, quality, quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -2,9 +2,9 @@ package farm.sales;
 
 import farm.core.ShopFront;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Utility class for pretty-printing a transaction as a receipt. 
@@ -22,15 +22,19 @@ public class ReceiptPrinter {
     private static final String FARM_LOGO = ShopFront.CAT; // width must be less than line length
     private static final int LINE_LENGTH = 48;
 
+    /**
+     * The fixed parts of every receipt printed for the farm.
+     */
+    static final ReceiptTemplate TEMPLATE =
+            ReceiptTemplate.of(FARM_NAME, FARM_ADDRESS, FARM_LOGO, LINE_LENGTH);
+
     /**
      * Creates a placeholder receipt for a transaction that has not been finalised yet and 
      * therefore cannot be used to generate a true receipt.
      * @return the placeholder receipt to display. 
      */
     public static String createActiveReceipt() {
-        return "-".repeat(LINE_LENGTH) + "\n"
-                + "Transaction still active; cannot generate receipt.\n"
-                + "-".repeat(LINE_LENGTH) + "\n";
+        return TEMPLATE.getActiveReceipt();
     }
 
     /**
@@ -70,17 +74,7 @@ public class ReceiptPrinter {
      */
     public static String createReceipt(List<String> headings, List<List<String>> entries,
                                        String total, String customerName) {
-        StringBuilder sb = new StringBuilder();
-        buildReceiptHeader(sb);
-
-        List<Integer> colLengths = getMaxLenPerCol(headings, entries);
-        int spacing = getSpacingBetweenEntries(colLengths);
-        buildPurchasesSectionHeadings(sb, headings, colLengths, spacing);
-        buildPurchasesSectionEntries(sb, entries, headings.size(), colLengths, spacing);
-
-        buildTotalsSummary(sb, total);
-        buildThankYouMessage(sb, customerName);
-        return sb.toString();
+        return createReceipt(headings, entries, total, customerName, null);
     }
 
     /**
@@ -123,90 +117,30 @@ public class ReceiptPrinter {
     public static String createReceipt(List<String> headings, List<List<String>> entries,
                                        String total, String customerName, String totalSaved) {
         StringBuilder sb = new StringBuilder();
-        buildReceiptHeader(sb);
-
-        List<Integer> colLengths = getMaxLenPerCol(headings, entries);
-        int spacing = getSpacingBetweenEntries(colLengths);
-        buildPurchasesSectionHeadings(sb, headings, colLengths, spacing);
-        buildPurchasesSectionEntries(sb, entries, headings.size(), colLengths, spacing);
-
-        buildTotalsSummary(sb, total);
-        buildSavingsSummary(sb, totalSaved);
-        buildThankYouMessage(sb, customerName);
-        return sb.toString();
-    }
-
-    private static void buildReceiptHeader(StringBuilder sb) {
-        sb.append("=".repeat(LINE_LENGTH)).append("\n");
-        sb.append(ShopFront.centreStringComponent(FARM_NAME, LINE_LENGTH));
-        sb.append(ShopFront.centreStringComponent(FARM_ADDRESS, LINE_LENGTH)).append("\n");
-        sb.append(ShopFront.centreStringComponent(FARM_LOGO, LINE_LENGTH)).append("\n");
-
-    }
-
-    private static void buildPurchasesSectionHeadings(StringBuilder sb, List<String> headings, List<Integer> colLengths, int spacing) {
-        sb.append("=".repeat(LINE_LENGTH)).append("\n");
-        distribute(sb, colLengths, spacing, headings);
-        sb.append("-".repeat(LINE_LENGTH)).append("\n");
-    }
-
-    private static void buildPurchasesSectionEntries(StringBuilder sb, List<List<String>> entries, int numHeadings, List<Integer> colLengths, int spacing) {
-
-        for (List<String> entry : entries) {
-            List<List<String>> lines = new ArrayList<>();
-            if (entry.size() <= numHeadings) {
-                lines.add(entry);
-            } else {
-                int partitions = (int) Math.ceil((double) entry.size() / numHeadings);
-                for (int i = 0; i < partitions; i++) {
-                    lines.add(entry.subList(i * numHeadings, Math.min(i * numHeadings
-                            + numHeadings, entry.size())));
+        ReceiptWriter writer = new ReceiptWriter(sb);
+        try {
+            writer.beginReceipt(headings.toArray(new String[0]));
+            for (List<String> entry : entries) {
+                for (int i = 0; i < headings.size(); i++) { // only the first line sets the widths
+                    writer.fitColumn(i, entry.get(i).length());
                 }
             }
-
-            for (List<String> line : lines) {
-                distribute(sb, colLengths, spacing, line);
+            writer.writeHeadings();
+            for (List<String> entry : entries) {
+                for (String item : entry) {
+                    writer.cell().text(item);
+                }
+                writer.endLine();
             }
-        }
-    }
 
-    private static void distribute(StringBuilder sb, List<Integer> colLengths, int spacing, List<String> line) {
-        for (int i = 0; i < line.size() - 1; i++) {
-            String part = line.get(i);
-            sb.append(part).append(" ".repeat(spacing + colLengths.get(i) - part.length()));
-        }
-        sb.append(line.getLast());
-        sb.append("\n"); // only one linebreak between same-entry lines
-    }
-
-    private static List<Integer> getMaxLenPerCol(List<String> headings, List<List<String>> entries) {
-        List<Integer> colLengths = headings.stream().map(String::length).collect(Collectors.toList());
-        for (List<String> entry : entries) {
-            for (int i = 0; i < colLengths.size(); i++) { // for loop to check only first line (no wrap)
-                colLengths.set(i, Math.max(colLengths.get(i), entry.get(i).length()));
+            writer.writeTotal(total);
+            if (totalSaved != null) {
+                writer.writeSavings(totalSaved);
             }
+            writer.writeThankYou(customerName);
+        } catch (IOException e) {
+            throw new UncheckedIOException("A StringBuilder cannot fail to append", e);
         }
-        return colLengths;
-    }
-    
-    private static int getSpacingBetweenEntries(List<Integer> maxLengths) {
-        return Math.max((LINE_LENGTH - maxLengths.stream().mapToInt(Integer::intValue).sum()) / (maxLengths.size() - 1), 1);
-    }
-    
-    private static void buildTotalsSummary(StringBuilder sb, String total) {
-        sb.append("-".repeat(LINE_LENGTH)).append("\n");
-        sb.append("Total:").append(" ".repeat(Math.max(LINE_LENGTH / 2 - "Total:".length(), 2))).append(total).append("\n");
-    }
-    
-    private static void buildSavingsSummary(StringBuilder sb, String totalSaved) {
-        sb.append("-".repeat(LINE_LENGTH)).append("\n");
-        sb.append("***** TOTAL SAVINGS: ").append(totalSaved).append(" *****").append("\n");
-    }
-    
-    private static void buildThankYouMessage(StringBuilder sb, String customerName) {
-        sb.append("-".repeat(LINE_LENGTH)).append("\n");
-        String msg = "Thank you for shopping with us, " + customerName + "!";
-        sb.append(msg.indent((LINE_LENGTH - msg.length()) / 2)).append("\n");
-        sb.append("=".repeat(LINE_LENGTH)).append("\n");
+        return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package farm.sales;
+
+import farm.core.ShopFront;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The parts of a receipt which are the same for every transaction at a farm: the header showing
+ * the farm's name, address and logo, the divider lines, and the placeholder shown for a
+ * transaction that is still active.
+ * <p>
+ * These parts are rendered once when the template is created, so printing a receipt only has to
+ * format the purchases, totals and thank-you message. Templates are cached, so every receipt
+ * printed for the same farm and line length shares the same template.
+ */
+public class ReceiptTemplate {
+    private static final Map<Key, ReceiptTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+    private final int lineLength;
+    private final String header;
+    private final String doubleDivider;
+    private final String singleDivider;
+    private final String activeReceipt;
+
+    /**
+     * Constructor for a ReceiptTemplate rendering the fixed parts of a farm's receipts.
+     * @param key The farm's details and the width of its receipts.
+     */
+    private ReceiptTemplate(Key key) {
+        this.lineLength = key.lineLength();
+        this.doubleDivider = "=".repeat(key.lineLength()) + "\n";
+        this.singleDivider = "-".repeat(key.lineLength()) + "\n";
+        this.header = this.doubleDivider
+                + ShopFront.centreStringComponent(key.farmName(), key.lineLength())
+                + ShopFront.centreStringComponent(key.farmAddress(), key.lineLength()) + "\n"
+                + ShopFront.centreStringComponent(key.logo(), key.lineLength()) + "\n";
+        this.activeReceipt = this.singleDivider
+                + "Transaction still active; cannot generate receipt.\n"
+                + this.singleDivider;
+    }
+
+    /**
+     * Retrieves the template for receipts from the given farm.
+     * @param farmName The name of the farm, shown at the top of the receipt.
+     * @param farmAddress The address of the farm, shown under its name.
+     * @param logo The farm's logo, shown under its address.
+     * @param lineLength The width of the receipt, in characters.
+     * @return The template, rendered on the first request for these details.
+     * @throws IllegalArgumentException If the line length is not positive.
+     * @requires The logo is narrower than the line length.
+     */
+    public static ReceiptTemplate of(String farmName, String farmAddress, String logo,
+                                     int lineLength) {
+        if (lineLength < 1) {
+            throw new IllegalArgumentException("Line length must be positive.");
+        }
+        return TEMPLATES.computeIfAbsent(new Key(farmName, farmAddress, logo, lineLength),
+                ReceiptTemplate::new);
+    }
+
+    /**
+     * Retrieves the width of the receipt.
+     * @return The number of characters in each full line of the receipt.
+     */
+    public int getLineLength() {
+        return this.lineLength;
+    }
+
+    /**
+     * Retrieves the top of the receipt, showing the farm's name, address and logo.
+     * @return The header, ending with a line break.
+     */
+    public String getHeader() {
+        return this.header;
+    }
+
+    /**
+     * Retrieves a divider made of '=' spanning the width of the receipt,
+     * used at the very top and bottom of the receipt.
+     * @return The divider, ending with a line break.
+     */
+    public String getDoubleDivider() {
+        return this.doubleDivider;
+    }
+
+    /**
+     * Retrieves a divider made of '-' spanning the width of the receipt,
+     * used between the sections of the receipt.
+     * @return The divider, ending with a line break.
+     */
+    public String getSingleDivider() {
+        return this.singleDivider;
+    }
+
+    /**
+     * Retrieves the placeholder shown in place of a receipt for a transaction
+     * that has not been finalised.
+     * @return The placeholder receipt.
+     */
+    public String getActiveReceipt() {
+        return this.activeReceipt;
+    }
+
+    /**
+     * The details that determine the fixed parts of a receipt.
+     * @param farmName The name of the farm.
+     * @param farmAddress The address of the farm.
+     * @param logo The farm's logo.
+     * @param lineLength The width of the receipt.
+     */
+    private record Key(String farmName, String farmAddress, String logo, int lineLength) {
+    }
+}
@@ -0,0 +1,333 @@
+package farm.sales;
+
+import java.io.IOException;
+
+/**
+ * Writes receipts laid out in the same way as {@link ReceiptPrinter}, directly into an
+ * {@link Appendable} such as a {@link StringBuilder}, {@link java.nio.CharBuffer} or
+ * {@link java.io.Writer}.
+ * <p>
+ * A receipt is written in stages. The headings of the purchases section are given first, then
+ * every entry is measured with {@link #fitColumn(int, int)} so the columns can be sized, and then
+ * the headings and entries are written one cell at a time before the totals and thank-you message.
+ * <p>
+ * Prices and numbers are written digit by digit and column widths are kept in a primitive array,
+ * so a writer that is reused for many receipts does not allocate while writing them.
+ * The header and dividers are copied from a {@link ReceiptTemplate}, which renders them only once.
+ * A writer must not be used by more than one thread at a time.
+ */
+public class ReceiptWriter {
+    private final Appendable out;
+    private final ReceiptTemplate template;
+    private final int lineLength;
+    private String[] headings;
+    private int[] widths;
+    private int spacing;
+
+    // The position of the next cell on the current line, and the length of the previous cell.
+    private int column;
+    private int cellLength;
+
+    /**
+     * Constructor for a ReceiptWriter which writes the farm's receipts to the given output.
+     * @param out The output to write receipts to.
+     */
+    public ReceiptWriter(Appendable out) {
+        this(out, ReceiptPrinter.TEMPLATE);
+    }
+
+    /**
+     * Constructor for a ReceiptWriter which writes receipts using the given template.
+     * @param out The output to write receipts to.
+     * @param template The header, dividers and width of the receipts.
+     */
+    public ReceiptWriter(Appendable out, ReceiptTemplate template) {
+        this.out = out;
+        this.template = template;
+        this.lineLength = template.getLineLength();
+        this.widths = new int[4];
+    }
+
+    /**
+     * Writes the placeholder shown for a transaction that has not been finalised yet.
+     * @throws IOException If the receipt could not be written.
+     */
+    public void writeActiveReceipt() throws IOException {
+        this.out.append(this.template.getActiveReceipt());
+    }
+
+    /**
+     * Starts a new receipt with the given headings for its purchases section.
+     * Each column starts as wide as its heading.
+     * @param headings The headings of the purchases section, from left to right.
+     * @requires There are at least two headings.
+     */
+    public void beginReceipt(String[] headings) {
+        this.headings = headings;
+        if (this.widths.length < headings.length) {
+            this.widths = new int[headings.length];
+        }
+        for (int i = 0; i < headings.length; i++) {
+            this.widths[i] = headings[i].length();
+        }
+    }
+
+    /**
+     * Widens a column of the purchases section, if needed, to fit an entry.
+     * Only the items on the first line of each entry should be fitted.
+     * @param column The index of the column.
+     * @param length The length of the entry's item in that column.
+     */
+    public void fitColumn(int column, int length) {
+        this.widths[column] = Math.max(this.widths[column], length);
+    }
+
+    /**
+     * Writes the top of the receipt, down to and including the headings of the purchases section.
+     * @throws IOException If the receipt could not be written.
+     * @requires Every entry has been fitted to the columns.
+     */
+    public void writeHeadings() throws IOException {
+        int totalWidth = 0;
+        for (int i = 0; i < this.headings.length; i++) {
+            totalWidth += this.widths[i];
+        }
+        this.spacing = Math.max((this.lineLength - totalWidth) / (this.headings.length - 1), 1);
+
+        this.out.append(this.template.getHeader());
+        this.out.append(this.template.getDoubleDivider());
+        for (String heading : this.headings) {
+            cell().text(heading);
+        }
+        endLine();
+        this.out.append(this.template.getSingleDivider());
+    }
+
+    /**
+     * Starts the next cell of the current entry, padding the previous cell to its column width.
+     * Once a cell has been written in every column, the entry wraps around to a new line.
+     * @return This writer, to write the contents of the cell.
+     * @throws IOException If the receipt could not be written.
+     */
+    public ReceiptWriter cell() throws IOException {
+        if (this.column == this.headings.length) {
+            this.out.append('\n');
+            this.column = 0;
+        } else if (this.column > 0) {
+            writeRepeated(' ', this.spacing + this.widths[this.column - 1] - this.cellLength);
+        }
+        this.column++;
+        this.cellLength = 0;
+        return this;
+    }
+
+    /**
+     * Writes text into the current cell.
+     * @param text The text to write.
+     * @return This writer, to continue writing the cell.
+     * @throws IOException If the receipt could not be written.
+     */
+    public ReceiptWriter text(CharSequence text) throws IOException {
+        this.out.append(text);
+        this.cellLength += text.length();
+        return this;
+    }
+
+    /**
+     * Writes a whole number into the current cell.
+     * @param number The number to write.
+     * @return This writer, to continue writing the cell.
+     * @throws IOException If the receipt could not be written.
+     */
+    public ReceiptWriter number(int number) throws IOException {
+        appendNumber(this.out, number);
+        this.cellLength += numberLength(number);
+        return this;
+    }
+
+    /**
+     * Writes a price into the current cell, formatted in dollars such as "$4.40".
+     * @param cents The price in cents.
+     * @return This writer, to continue writing the cell.
+     * @throws IOException If the receipt could not be written.
+     */
+    public ReceiptWriter price(int cents) throws IOException {
+        appendPrice(this.out, cents);
+        this.cellLength += priceLength(cents);
+        return this;
+    }
+
+    /**
+     * Ends the current entry of the purchases section.
+     * @throws IOException If the receipt could not be written.
+     */
+    public void endLine() throws IOException {
+        this.out.append('\n');
+        this.column = 0;
+    }
+
+    /**
+     * Writes the total cost of the transaction.
+     * @param cents The total in cents.
+     * @throws IOException If the receipt could not be written.
+     */
+    public void writeTotal(int cents) throws IOException {
+        beginTotal();
+        appendPrice(this.out, cents);
+        this.out.append('\n');
+    }
+
+    /**
+     * Writes the total cost of the transaction, already formatted for display.
+     * @param total The formatted total.
+     * @throws IOException If the receipt could not be written.
+     */
+    void writeTotal(String total) throws IOException {
+        beginTotal();
+        this.out.append(total).append('\n');
+    }
+
+    /**
+     * Writes the total amount saved by the customer.
+     * @param cents The amount saved in cents.
+     * @throws IOException If the receipt could not be written.
+     */
+    public void writeSavings(int cents) throws IOException {
+        beginSavings();
+        appendPrice(this.out, cents);
+        this.out.append(" *****\n");
+    }
+
+    /**
+     * Writes the total amount saved by the customer, already formatted for display.
+     * @param totalSaved The formatted amount saved.
+     * @throws IOException If the receipt could not be written.
+     */
+    void writeSavings(String totalSaved) throws IOException {
+        beginSavings();
+        this.out.append(totalSaved).append(" *****\n");
+    }
+
+    /**
+     * Writes the message thanking the customer, which ends the receipt.
+     * @param customerName The name of the customer.
+     * @throws IOException If the receipt could not be written.
+     */
+    public void writeThankYou(String customerName) throws IOException {
+        this.out.append(this.template.getSingleDivider());
+        String greeting = "Thank you for shopping with us, ";
+        int length = greeting.length() + customerName.length() + 1;
+        if (customerName.indexOf('\n') >= 0 || customerName.indexOf('\r') >= 0) {
+            // A message split over several lines needs each line indented separately.
+            String message = greeting + customerName + "!";
+            this.out.append(message.indent((this.lineLength - length) / 2));
+        } else {
+            writeRepeated(' ', (this.lineLength - length) / 2);
+            this.out.append(greeting).append(customerName).append("!\n");
+        }
+        this.out.append('\n');
+        this.out.append(this.template.getDoubleDivider());
+    }
+
+    /**
+     * Writes the start of the line holding the total, up to where the total is shown.
+     * @throws IOException If the receipt could not be written.
+     */
+    private void beginTotal() throws IOException {
+        this.out.append(this.template.getSingleDivider());
+        this.out.append("Total:");
+        writeRepeated(' ', Math.max(this.lineLength / 2 - "Total:".length(), 2));
+    }
+
+    /**
+     * Writes the start of the line holding the savings, up to where the savings are shown.
+     * @throws IOException If the receipt could not be written.
+     */
+    private void beginSavings() throws IOException {
+        this.out.append(this.template.getSingleDivider());
+        this.out.append("***** TOTAL SAVINGS: ");
+    }
+
+    /**
+     * Writes a character a number of times.
+     * @param c The character to write.
+     * @param count The number of times to write it, which writes nothing if not positive.
+     * @throws IOException If the receipt could not be written.
+     */
+    private void writeRepeated(char c, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            this.out.append(c);
+        }
+    }
+
+    /**
+     * Calculates the length of a price once formatted in dollars, such as "$4.40".
+     * @param cents The price in cents.
+     * @return The number of characters in the formatted price.
+     */
+    public static int priceLength(int cents) {
+        // A dollar sign, the dollars, a decimal point and two digits of cents.
+        long magnitude = Math.abs((long) cents);
+        return 1 + (cents < 0 ? 1 : 0) + numberLength(magnitude / 100) + 3;
+    }
+
+    /**
+     * Writes a price formatted in dollars, such as "$4.40".
+     * @param out The output to write to.
+     * @param cents The price in cents.
+     * @throws IOException If the price could not be written.
+     */
+    public static void appendPrice(Appendable out, int cents) throws IOException {
+        out.append('$');
+        if (cents < 0) {
+            out.append('-');
+        }
+        long magnitude = Math.abs((long) cents);
+        appendDigits(out, magnitude / 100);
+        out.append('.');
+        out.append((char) ('0' + magnitude % 100 / 10));
+        out.append((char) ('0' + magnitude % 10));
+    }
+
+    /**
+     * Calculates the length of a whole number once written out.
+     * @param number The number.
+     * @return The number of characters in the written number, including any minus sign.
+     */
+    public static int numberLength(long number) {
+        int length = number < 0 ? 2 : 1;
+        for (long rest = Math.abs(number / 10); rest > 0; rest /= 10) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Writes a whole number.
+     * @param out The output to write to.
+     * @param number The number to write.
+     * @throws IOException If the number could not be written.
+     */
+    public static void appendNumber(Appendable out, int number) throws IOException {
+        if (number < 0) {
+            out.append('-');
+        }
+        appendDigits(out, Math.abs((long) number));
+    }
+
+    /**
+     * Writes the digits of a non-negative number, most significant first.
+     * @param out The output to write to.
+     * @param number The number, which must not be negative.
+     * @throws IOException If the number could not be written.
+     */
+    private static void appendDigits(Appendable out, long number) throws IOException {
+        long divisor = 1;
+        while (number / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + number / divisor % 10));
+        }
+    }
+}
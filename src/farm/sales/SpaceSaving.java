@@ -0,0 +1,239 @@
+package farm.sales;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An estimate of which keys have the highest weight added to them, using a fixed amount of memory
+ * regardless of how many different keys are seen.
+ * <p>
+ * Follows the Space-Saving algorithm: a fixed number of keys are tracked, each with a counter.
+ * When a new key is added once every counter is in use, the key with the lowest count is replaced
+ * and its count is carried over to the new key. Counts are therefore never underestimated, and any
+ * key whose true weight exceeds the total weight divided by the capacity is guaranteed to be
+ * tracked.
+ * <p>
+ * The counters are kept in a min-heap, so adding weight takes logarithmic time in the capacity.
+ * @param <K> The type of keys counted.
+ */
+public class SpaceSaving<K> {
+    private final int capacity;
+    private final Map<K, Counter<K>> counters;
+    private final List<Counter<K>> heap;
+
+    // Counters removed from the map while their key is being changed.
+    private final Map<K, Counter<K>> rekeying;
+
+    /**
+     * Constructor for a SpaceSaving estimate tracking at most the given number of keys.
+     * @param capacity The number of keys to track. More keys give more accurate estimates.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>();
+        this.heap = new ArrayList<>(capacity);
+        this.rekeying = new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds weight to a key, replacing the key with the lowest count if the key is not already
+     * tracked and every counter is in use.
+     * @param key The key to add weight to.
+     * @param weight The weight to add.
+     * @return The key that was replaced, or null if no key stopped being tracked.
+     * @throws IllegalArgumentException If the weight is negative.
+     */
+    public K add(K key, long weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative.");
+        }
+        Counter<K> counter = this.counters.get(key);
+        if (counter != null) {
+            counter.count += weight;
+            siftDown(counter.index);
+            return null;
+        } else if (weight == 0) {
+            // Replacing a key without adding any weight would only lose information.
+            return null;
+        } else if (this.heap.size() < this.capacity) {
+            counter = new Counter<>(key, weight, this.heap.size());
+            this.heap.add(counter);
+            this.counters.put(key, counter);
+            siftUp(counter.index);
+            return null;
+        }
+
+        // Take over the counter of the lowest key, which may have been counted for the new key.
+        Counter<K> lowest = this.heap.get(0);
+        K replaced = lowest.key;
+        if (this.rekeying.remove(replaced) == null) {
+            this.counters.remove(replaced);
+        }
+        lowest.key = key;
+        lowest.error = lowest.count;
+        lowest.count += weight;
+        this.counters.put(key, lowest);
+        siftDown(0);
+        return replaced;
+    }
+
+    /**
+     * Retrieves the estimated weight of a key.
+     * @param key The key of interest.
+     * @return The estimated weight, which is at least the true weight if the key is tracked,
+     *         or 0 if the key is not tracked.
+     */
+    public long getEstimate(K key) {
+        Counter<K> counter = this.counters.get(key);
+        return counter == null ? 0 : counter.count;
+    }
+
+    /**
+     * Retrieves the most the estimated weight of a key may exceed its true weight by.
+     * @param key The key of interest.
+     * @return The possible overestimate, or 0 if the key is not tracked.
+     */
+    public long getError(K key) {
+        Counter<K> counter = this.counters.get(key);
+        return counter == null ? 0 : counter.error;
+    }
+
+    /**
+     * Retrieves the tracked keys with the highest estimated weights.
+     * @param k The maximum number of keys to retrieve.
+     * @return Up to k keys, in descending order of estimated weight.
+     * @throws IllegalArgumentException If k is negative.
+     */
+    public List<K> getTop(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Cannot retrieve a negative number of keys.");
+        }
+        List<Counter<K>> sorted = new ArrayList<>(this.heap);
+        sorted.sort(Comparator.comparingLong((Counter<K> counter) -> counter.count).reversed());
+        List<K> top = new ArrayList<>(Math.min(k, sorted.size()));
+        for (Counter<K> counter : sorted.subList(0, Math.min(k, sorted.size()))) {
+            top.add(counter.key);
+        }
+        return top;
+    }
+
+    /**
+     * Stops looking up a key by its current value, ahead of a change to its equality.
+     * The key keeps its count, and is looked up again once {@link #endRekey(Object)} is called.
+     * <p>
+     * The count is found by equality, so it moves to the given instance even if it was added
+     * under a different but equal instance. If the key is replaced by {@link #add(Object, long)}
+     * before the change ends, it stops being tracked and the end of the change is ignored.
+     * @param key The tracked key which is about to change.
+     */
+    public void beginRekey(K key) {
+        Counter<K> counter = this.counters.remove(key);
+        if (counter != null) {
+            // Follow the instance being changed, rather than the one the count was added under.
+            counter.key = key;
+            this.rekeying.put(key, counter);
+        }
+    }
+
+    /**
+     * Resumes looking up a key after its equality has changed.
+     * If the key now equals another tracked key, the two counts are merged.
+     * @param key The key which has changed.
+     */
+    public void endRekey(K key) {
+        Counter<K> counter = this.rekeying.remove(key);
+        if (counter == null) {
+            return;
+        }
+        Counter<K> existing = this.counters.get(key);
+        if (existing == null) {
+            this.counters.put(key, counter);
+            return;
+        }
+
+        // Fold the changed key's count into the key it now matches, and free its counter.
+        existing.count += counter.count;
+        existing.error += counter.error;
+        Counter<K> last = this.heap.remove(this.heap.size() - 1);
+        if (last != counter) {
+            this.heap.set(counter.index, last);
+            last.index = counter.index;
+            siftUp(last.index);
+            siftDown(last.index);
+        }
+        siftDown(existing.index);
+    }
+
+    /**
+     * Moves a counter towards the root of the heap until its parent is no larger.
+     * @param index The position of the counter in the heap.
+     */
+    private void siftUp(int index) {
+        Counter<K> counter = this.heap.get(index);
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (this.heap.get(parent).count <= counter.count) {
+                break;
+            }
+            place(this.heap.get(parent), index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+
+    /**
+     * Moves a counter away from the root of the heap until neither child is smaller.
+     * @param index The position of the counter in the heap.
+     */
+    private void siftDown(int index) {
+        Counter<K> counter = this.heap.get(index);
+        while (2 * index + 1 < this.heap.size()) {
+            int child = 2 * index + 1;
+            if (child + 1 < this.heap.size()
+                    && this.heap.get(child + 1).count < this.heap.get(child).count) {
+                child++;
+            }
+            if (this.heap.get(child).count >= counter.count) {
+                break;
+            }
+            place(this.heap.get(child), index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    /**
+     * Puts a counter at a position in the heap.
+     * @param counter The counter to move.
+     * @param index The position to move it to.
+     */
+    private void place(Counter<K> counter, int index) {
+        this.heap.set(index, counter);
+        counter.index = index;
+    }
+
+    /**
+     * A tracked key with its estimated weight.
+     * @param <K> The type of key.
+     */
+    private static class Counter<K> {
+        private K key;
+        private long count;
+        private long error;
+        private int index;
+
+        private Counter(K key, long count, int index) {
+            this.key = key;
+            this.count = count;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package farm.sales;
+
+import farm.customer.Customer;
+import farm.inventory.product.Product;
+import farm.inventory.product.data.Barcode;
+import farm.sales.transaction.Transaction;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * A compact store of finalised transactions, laid out in columns of primitive values
+ * rather than as transaction and product objects.
+ * <p>
+ * Every product sold is stored as its barcode ordinal, quality ordinal and price, in the order
+ * the products were purchased. Each transaction is stored as the offset of its first product,
+ * along with its kind, total, discounts, customer, and the time it was finalised
+ * (to the millisecond). Aggregate queries are simple scans over
+ * these arrays, and transactions and their receipts are only rebuilt when they are asked for.
+ * <p>
+ * The aggregate queries can be limited to a range of transactions, given by their positions in
+ * the order they were added, which is how a {@link TransactionHistory} totals the transactions in
+ * a period without rebuilding them. Ranges of at least {@link #PARALLEL_THRESHOLD} transactions or
+ * products are scanned in parallel on the common fork/join pool, giving the same results as
+ * scanning them one by one.
+ */
+public class TransactionColumns {
+    /**
+     * The number of transactions or products in a range from which it is scanned in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private static final int BARCODES = Barcode.values().length;
+
+    // One entry for every product sold.
+    private int[] barcodes;
+    private byte[] qualities;
+    private int[] prices;
+    private int productCount;
+
+    // One entry for every transaction, with an extra offset marking the end of the last.
+    private int[] offsets;
+    private byte[] kinds;
+    private long[] times;
+    private int[] totals;
+    private int[] discounts;
+    private Customer[] customers;
+    private int size;
+
+    private final Product[][] products;
+
+    /**
+     * A constructor for an empty TransactionColumns.
+     */
+    public TransactionColumns() {
+        this.barcodes = new int[64];
+        this.qualities = new byte[64];
+        this.prices = new int[64];
+        this.offsets = new int[17];
+        this.kinds = new byte[16];
+        this.times = new long[16];
+        this.totals = new int[16];
+        this.discounts = new int[16 * BARCODES];
+        this.customers = new Customer[16];
+        this.products = TransactionRecords.createProducts();
+    }
+
+    /**
+     * Adds a finalised transaction to the end of the store.
+     * @param transaction The transaction to add.
+     * @requires The transaction is finalised.
+     */
+    public void add(Transaction transaction) {
+        List<Product> purchases = transaction.getPurchases();
+        ensureCapacity(purchases.size());
+
+        for (Product product : purchases) {
+            this.barcodes[this.productCount] = product.getBarcode().ordinal();
+            this.qualities[this.productCount] = (byte) product.getQuality().ordinal();
+            this.prices[this.productCount] = product.getBasePrice();
+            this.productCount++;
+        }
+        for (Map.Entry<Barcode, Integer> discount
+                : TransactionRecords.discountsOf(transaction).entrySet()) {
+            this.discounts[this.size * BARCODES + discount.getKey().ordinal()] =
+                    discount.getValue();
+        }
+        this.kinds[this.size] = TransactionRecords.kindOf(transaction);
+        this.times[this.size] = transaction.getFinalisedTime().toEpochMilli();
+        this.totals[this.size] = transaction.getTotal();
+        this.customers[this.size] = transaction.getAssociatedCustomer();
+        this.size++;
+        this.offsets[this.size] = this.productCount;
+    }
+
+    /**
+     * Retrieves the number of transactions in the store.
+     * @return The number of transactions.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Rebuilds the transaction at the given position.
+     * <p>
+     * A new finalised transaction is created on every call. Its customer is a copy of the
+     * original customer with their current details, so the original customer's cart is untouched.
+     * @param index The position of the transaction, in the order transactions were added.
+     * @return The rebuilt transaction.
+     * @throws IndexOutOfBoundsException If there is no transaction at that position.
+     */
+    public Transaction getTransaction(int index) {
+        checkRange(index, index + 1);
+        List<Product> purchases = new ArrayList<>(this.offsets[index + 1] - this.offsets[index]);
+        for (int i = this.offsets[index]; i < this.offsets[index + 1]; i++) {
+            purchases.add(this.products[this.barcodes[i]][this.qualities[i]]);
+        }
+        Map<Barcode, Integer> transactionDiscounts = new EnumMap<>(Barcode.class);
+        for (Barcode barcode : Barcode.values()) {
+            int discount = this.discounts[index * BARCODES + barcode.ordinal()];
+            if (discount != 0) {
+                transactionDiscounts.put(barcode, discount);
+            }
+        }
+
+        Customer customer = this.customers[index];
+        Customer copy = new Customer(customer.getName(), customer.getPhoneNumber(),
+                customer.getAddress());
+        return TransactionRecords.rebuild(this.kinds[index], copy, transactionDiscounts,
+                purchases, getFinalisedTime(index));
+    }
+
+    /**
+     * Retrieves the time at which the transaction at the given position was finalised.
+     * @param index The position of the transaction, in the order transactions were added.
+     * @return The time the transaction was finalised, to the millisecond.
+     * @throws IndexOutOfBoundsException If there is no transaction at that position.
+     */
+    public Instant getFinalisedTime(int index) {
+        checkRange(index, index + 1);
+        return Instant.ofEpochMilli(this.times[index]);
+    }
+
+    /**
+     * Creates the receipt of the transaction at the given position.
+     * @param index The position of the transaction, in the order transactions were added.
+     * @return The receipt of the transaction.
+     * @throws IndexOutOfBoundsException If there is no transaction at that position.
+     */
+    public String getReceipt(int index) {
+        return getTransaction(index).getReceipt();
+    }
+
+    /**
+     * Retrieves the total of the transaction at the given position.
+     * @param index The position of the transaction, in the order transactions were added.
+     * @return The total (discounted) price of the transaction.
+     * @throws IndexOutOfBoundsException If there is no transaction at that position.
+     */
+    public int getTotal(int index) {
+        checkRange(index, index + 1);
+        return this.totals[index];
+    }
+
+    /**
+     * Calculates the gross earnings from the transactions in the given range.
+     * @param from The position of the first transaction, inclusive.
+     * @param to The position of the last transaction, exclusive.
+     * @return The gross earnings from those transactions, in cents.
+     * @throws IndexOutOfBoundsException If the range is outside the store.
+     */
+    public long getGrossEarnings(int from, int to) {
+        checkRange(from, to);
+        int[] totals = this.totals;
+        return scan(from, to).mapToLong(i -> totals[i]).sum();
+    }
+
+    /**
+     * Calculates the gross earnings from sales of a product type in the transactions
+     * in the given range, after any discounts.
+     * @param type The product type.
+     * @param from The position of the first transaction, inclusive.
+     * @param to The position of the last transaction, exclusive.
+     * @return The gross earnings from the product type in those transactions, in cents.
+     * @throws IndexOutOfBoundsException If the range is outside the store.
+     */
+    public long getGrossEarnings(Barcode type, int from, int to) {
+        checkRange(from, to);
+        return scan(from, to).mapToLong(i -> getSubtotal(i, type.ordinal())).sum();
+    }
+
+    /**
+     * Calculates the number of products sold in the transactions in the given range.
+     * @param from The position of the first transaction, inclusive.
+     * @param to The position of the last transaction, exclusive.
+     * @return The number of products sold in those transactions.
+     * @throws IndexOutOfBoundsException If the range is outside the store.
+     */
+    public int getTotalProductsSold(int from, int to) {
+        checkRange(from, to);
+        return this.offsets[to] - this.offsets[from];
+    }
+
+    /**
+     * Calculates the number of products of a type sold in the transactions in the given range.
+     * @param type The product type.
+     * @param from The position of the first transaction, inclusive.
+     * @param to The position of the last transaction, exclusive.
+     * @return The number of products of that type sold in those transactions.
+     * @throws IndexOutOfBoundsException If the range is outside the store.
+     */
+    public int getTotalProductsSold(Barcode type, int from, int to) {
+        return countProductsSold(from, to)[type.ordinal()];
+    }
+
+    /**
+     * Calculates which type of product had the highest quantity sold in the transactions in
+     * the given range. If two products sold the same quantity, the one appearing first in the
+     * Barcode enum is returned.
+     * @param from The position of the first transaction, inclusive.
+     * @param to The position of the last transaction, exclusive.
+     * @return The most popular product type, or null if no products were sold.
+     * @throws IndexOutOfBoundsException If the range is outside the store.
+     */
+    public Barcode getMostPopularProduct(int from, int to) {
+        int[] sold = countProductsSold(from, to);
+        int highestTotal = 0;
+        Barcode highest = null;
+        for (Barcode barcode : Barcode.values()) {
+            if (sold[barcode.ordinal()] > highestTotal) {
+                highestTotal = sold[barcode.ordinal()];
+                highest = barcode;
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Finds the transaction with the highest total in the given range.
+     * If several share the highest total, the first of them is returned.
+     * @param from The position of the first transaction, inclusive.
+     * @param to The position of the last transaction, exclusive.
+     * @return The position of the highest grossing transaction, or -1 if none had a total
+     *         above zero.
+     * @throws IndexOutOfBoundsException If the range is outside the store.
+     */
+    public int getHighestGrossingTransaction(int from, int to) {
+        checkRange(from, to);
+        int[] totals = this.totals;
+
+        // Only a strictly higher total replaces the earlier transaction, wherever the range is
+        // split, so the first of several equally high transactions is kept.
+        int highest = scan(from, to).reduce((first, second) ->
+                totals[second] > totals[first] ? second : first).orElse(-1);
+        return highest >= 0 && totals[highest] > 0 ? highest : -1;
+    }
+
+    /**
+     * Calculates the subtotal for a product type within a single transaction,
+     * after any discount.
+     * @param index The position of the transaction.
+     * @param barcode The ordinal of the product type.
+     * @return The (discounted) subtotal for the product type, in cents.
+     */
+    private int getSubtotal(int index, int barcode) {
+        int subtotal = 0;
+        for (int product = this.offsets[index]; product < this.offsets[index + 1]; product++) {
+            if (this.barcodes[product] == barcode) {
+                subtotal += this.prices[product];
+            }
+        }
+        int discount = this.discounts[index * BARCODES + barcode];
+        if (discount != 0 && this.kinds[index] == TransactionRecords.SPECIAL_SALE) {
+            // Matches the rounding of SpecialSaleTransaction.getPurchaseSubtotal(Barcode).
+            subtotal = (int) Math.round(subtotal - ((discount * subtotal) / 100.0));
+        }
+        return subtotal;
+    }
+
+    /**
+     * Counts the products of each type sold in the transactions in the given range.
+     * @param from The position of the first transaction, inclusive.
+     * @param to The position of the last transaction, exclusive.
+     * @return The number of products sold, indexed by barcode ordinal.
+     */
+    private int[] countProductsSold(int from, int to) {
+        checkRange(from, to);
+        int[] barcodes = this.barcodes;
+        return scan(this.offsets[from], this.offsets[to]).collect(
+                () -> new int[BARCODES],
+                (sold, product) -> sold[barcodes[product]]++,
+                (sold, more) -> {
+                    for (int i = 0; i < BARCODES; i++) {
+                        sold[i] += more[i];
+                    }
+                });
+    }
+
+    /**
+     * Streams the positions in a range, in parallel if the range is large enough.
+     * @param from The first position, inclusive.
+     * @param to The last position, exclusive.
+     * @return The positions in the range.
+     */
+    private static IntStream scan(int from, int to) {
+        IntStream positions = IntStream.range(from, to);
+        return to - from >= PARALLEL_THRESHOLD ? positions.parallel() : positions;
+    }
+
+    /**
+     * Ensures a range of transaction positions lies within the store.
+     * @param from The position of the first transaction, inclusive.
+     * @param to The position of the last transaction, exclusive.
+     * @throws IndexOutOfBoundsException If the range is outside the store.
+     */
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > this.size || from > to) {
+            throw new IndexOutOfBoundsException(
+                    "Range: [" + from + ", " + to + "), Size: " + this.size);
+        }
+    }
+
+    /**
+     * Grows the columns if they cannot fit another transaction with the given number of products.
+     * @param purchases The number of products in the transaction about to be added.
+     */
+    private void ensureCapacity(int purchases) {
+        if (this.productCount + purchases > this.barcodes.length) {
+            int capacity = Math.max(this.barcodes.length * 2, this.productCount + purchases);
+            this.barcodes = Arrays.copyOf(this.barcodes, capacity);
+            this.qualities = Arrays.copyOf(this.qualities, capacity);
+            this.prices = Arrays.copyOf(this.prices, capacity);
+        }
+        if (this.size == this.kinds.length) {
+            int capacity = this.kinds.length * 2;
+            this.offsets = Arrays.copyOf(this.offsets, capacity + 1);
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.times = Arrays.copyOf(this.times, capacity);
+            this.totals = Arrays.copyOf(this.totals, capacity);
+            this.discounts = Arrays.copyOf(this.discounts, capacity * BARCODES);
+            this.customers = Arrays.copyOf(this.customers, capacity);
+        }
+    }
+}
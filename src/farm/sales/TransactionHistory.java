@@ -1,59 +1,325 @@
 package farm.sales;
 
+import farm.customer.Customer;
+import farm.customer.CustomerKeyListener;
 import farm.inventory.product.Product;
 import farm.inventory.product.data.Barcode;
 import farm.sales.transaction.CategorisedTransaction;
 import farm.sales.transaction.Transaction;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
 
 /**
  * A record of all past transactions.
  * Handles retrieval of statistics about past transactions, such as earnings and popular products.
+ * <p>
+ * Statistics are updated as each transaction is recorded, so retrieving them does not require
+ * revisiting past transactions, unless the history is stored in columns as described below.
+ * Transactions may be recorded and queried from multiple threads.
+ * <p>
+ * Statistics can also be retrieved for the transactions finalised within a period of time.
+ * The history keeps separate totals for each hour in which transactions were finalised, so a
+ * period is answered by combining the totals of the hours it covers, and only the transactions
+ * in the partly covered hours at either end of the period are revisited. A history stored in
+ * columns adds those transactions up from the columns, without rebuilding them.
+ * <p>
+ * The customers who have spent the most are estimated with a {@link SpaceSaving} sketch, so the
+ * memory used does not grow with the number of customers. Tracked customers are followed through
+ * changes to their name or phone number.
+ * <p>
+ * A history may be kept in a {@link TransactionLog}, so that it can be rebuilt after a restart.
+ * <p>
+ * For very large histories, transactions may instead be stored in {@link TransactionColumns},
+ * which holds them as primitive values rather than objects. Transactions retrieved from such a
+ * history are rebuilt when requested, so a new instance is returned on each request.
+ * Such a history keeps no running totals: statistics over all transactions are scans of the
+ * columns, which run in parallel once the history holds at least
+ * {@link TransactionColumns#PARALLEL_THRESHOLD} transactions or products, and give the same
+ * results as a sequential scan.
  */
 public class TransactionHistory {
     private List<Transaction> transactions;
+    private final TransactionColumns columns;
+    private final TransactionLog log;
+
+    private static final long MILLIS_PER_HOUR = 60 * 60 * 1000;
+
+    /**
+     * The number of customers whose spending is tracked to find the top spending customers.
+     */
+    public static final int TRACKED_CUSTOMERS = 256;
+
+    // Running totals, updated as each transaction is recorded, unless stored in columns.
+    private final SalesTotals totals;
+    private int highestGrossing;
+    private int highestGrossingTotal;
+
+    // The transactions finalised in each hour, keyed by hours since the epoch.
+    private final NavigableMap<Long, HourBucket> hours;
+
+    // The customers estimated to have spent the most.
+    private final SpaceSaving<Customer> topCustomers;
+    private final CustomerKeyListener topCustomerUpdater = new TopCustomerUpdater();
 
     /**
      * A constructor for the TransactionHistory.
      */
     public TransactionHistory() {
-        this.transactions = new ArrayList<>();
+        this(null, null);
+    }
+
+    /**
+     * A constructor for a TransactionHistory kept in the given log.
+     * The history starts with every transaction already in the log,
+     * and each transaction recorded from then on is appended to the log.
+     * @param log The log the history is read from and written to.
+     */
+    public TransactionHistory(TransactionLog log) {
+        this(log, null);
+    }
+
+    /**
+     * A constructor for a TransactionHistory which stores its transactions in columns.
+     * @param columns The columns to store recorded transactions in.
+     * @requires The columns are empty, and not used by any other history.
+     */
+    public TransactionHistory(TransactionColumns columns) {
+        this(null, columns);
+    }
+
+    /**
+     * A constructor for a TransactionHistory kept in the given log,
+     * which stores its transactions in columns.
+     * The history starts with every transaction already in the log,
+     * and each transaction recorded from then on is appended to the log.
+     * @param log The log the history is read from and written to, or null for no log.
+     * @param columns The columns to store recorded transactions in,
+     *                or null to store the transactions themselves.
+     * @requires The columns are empty, and not used by any other history.
+     */
+    public TransactionHistory(TransactionLog log, TransactionColumns columns) {
+        this.transactions = columns == null ? new ArrayList<>() : null;
+        this.columns = columns;
+        this.totals = new SalesTotals();
+        this.highestGrossing = -1;
+        this.hours = new TreeMap<>();
+        this.topCustomers = new SpaceSaving<>(TRACKED_CUSTOMERS);
+        if (log != null) {
+            for (Transaction transaction : log.getRecoveredTransactions()) {
+                store(transaction);
+                updateStatistics(transaction);
+            }
+        }
+        this.log = log;
     }
 
     /**
      * Adds the given transaction to the record of all past transactions.
+     * If the history is kept in a log, the transaction is appended to the log first.
      * @param transaction The transaction to add to the record.
+     * @throws UncheckedIOException If the transaction could not be written to the log,
+     *                              in which case it is not recorded.
      * @requires The transaction to be recorded has to be finalised.
      */
-    public void recordTransaction(Transaction transaction) {
+    public synchronized void recordTransaction(Transaction transaction) {
         // Only add the transaction to history if it is finalised.
         if (transaction.isFinalised()) {
+            if (this.log != null) {
+                try {
+                    this.log.append(transaction);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not write transaction to log", e);
+                }
+            }
+            store(transaction);
+            updateStatistics(transaction);
+        }
+    }
+
+    /**
+     * Adds all the given transactions to the record of past transactions in one go,
+     * in the order they are provided.
+     * Transactions which are not finalised are skipped.
+     * @param transactions The transactions to add to the record.
+     */
+    public synchronized void recordTransactions(Collection<? extends Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            recordTransaction(transaction);
+        }
+    }
+
+    /**
+     * Stores a transaction at the end of the history.
+     * @param transaction The transaction to store.
+     */
+    private void store(Transaction transaction) {
+        if (this.columns != null) {
+            this.columns.add(transaction);
+        } else {
             this.transactions.add(transaction);
         }
     }
 
+    /**
+     * Retrieves the number of transactions stored in the history.
+     * @return The number of transactions.
+     */
+    private int size() {
+        return this.columns != null ? this.columns.size() : this.transactions.size();
+    }
+
+    /**
+     * Retrieves the transaction stored at the given position in the history.
+     * @param index The position of the transaction, in the order transactions were recorded.
+     * @return The transaction, rebuilt if the history is stored in columns.
+     */
+    private Transaction getTransaction(int index) {
+        if (this.columns != null) {
+            return this.columns.getTransaction(index);
+        }
+        return this.transactions.get(index);
+    }
+
+    /**
+     * Adds the contribution of a newly recorded transaction to the running totals.
+     * @param transaction The transaction that was recorded, which is the last in the history.
+     */
+    private void updateStatistics(Transaction transaction) {
+        int total = transaction.getTotal();
+
+        // Statistics over every transaction are scanned from the columns instead.
+        if (this.columns == null) {
+            // If same earnings amount, keep the one that was first recorded.
+            if (total > this.highestGrossingTotal) {
+                this.highestGrossing = size() - 1;
+                this.highestGrossingTotal = total;
+            }
+            this.totals.add(transaction);
+        }
+
+        Customer customer = transaction.getAssociatedCustomer();
+        Customer replaced = this.topCustomers.add(customer, total);
+        if (replaced != null) {
+            replaced.removeKeyListener(this.topCustomerUpdater);
+        }
+        if (this.topCustomers.getEstimate(customer) > 0) {
+            // Listen to the customer at most once, even if they were tracked before.
+            customer.removeKeyListener(this.topCustomerUpdater);
+            customer.addKeyListener(this.topCustomerUpdater);
+        }
+
+        long time = transaction.getFinalisedTime().toEpochMilli();
+        this.hours.computeIfAbsent(Math.floorDiv(time, MILLIS_PER_HOUR), hour -> new HourBucket())
+                .add(transaction, time, size() - 1);
+    }
+
+    /**
+     * Adds up the statistics of every transaction finalised within a period of time.
+     * @param from The start of the period, inclusive.
+     * @param to The end of the period, exclusive.
+     * @return The combined statistics of the transactions in the period.
+     * @throws IllegalArgumentException If the start of the period is after the end.
+     */
+    private SalesTotals getTotals(Instant from, Instant to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("The start of the period must not be after its end.");
+        }
+        long start = from.toEpochMilli();
+        long end = to.toEpochMilli();
+        SalesTotals totals = new SalesTotals();
+        for (Map.Entry<Long, HourBucket> entry : this.hours.subMap(Math.floorDiv(start, MILLIS_PER_HOUR), true,
+                Math.floorDiv(end, MILLIS_PER_HOUR), true).entrySet()) {
+            long hourStart = entry.getKey() * MILLIS_PER_HOUR;
+            HourBucket bucket = entry.getValue();
+            if (hourStart >= start && hourStart + MILLIS_PER_HOUR <= end) {
+                totals.add(bucket.totals);
+                continue;
+            }
+
+            // The hour is only partly in the period, so check each of its transactions.
+            if (this.columns != null) {
+                addColumnTotals(totals, bucket, start, end);
+                continue;
+            }
+            for (int i = 0; i < bucket.size; i++) {
+                if (bucket.times[i] >= start && bucket.times[i] < end) {
+                    totals.add(this.transactions.get(bucket.positions[i]));
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Adds up the statistics of the transactions in an hour which were finalised within a period,
+     * reading them straight from the columns rather than rebuilding each transaction.
+     * <p>
+     * Consecutive positions in the history are added together as a single range of the columns.
+     * @param totals The totals to add to.
+     * @param bucket The hour, which is only partly in the period.
+     * @param start The start of the period in milliseconds since the epoch, inclusive.
+     * @param end The end of the period in milliseconds since the epoch, exclusive.
+     */
+    private void addColumnTotals(SalesTotals totals, HourBucket bucket, long start, long end) {
+        // The range of positions waiting to be added, which is empty when from equals to.
+        int from = 0;
+        int to = 0;
+        for (int i = 0; i < bucket.size; i++) {
+            if (bucket.times[i] < start || bucket.times[i] >= end) {
+                continue;
+            }
+            int position = bucket.positions[i];
+            if (position != to) {
+                totals.add(this.columns, from, to);
+                from = position;
+            }
+            to = position + 1;
+        }
+        totals.add(this.columns, from, to);
+    }
+
     /**
      * Retrieves the most recent transaction.
      * @return The most recent transaction added to the record.
      */
-    public Transaction getLastTransaction() {
-        return transactions.getLast();
+    public synchronized Transaction getLastTransaction() {
+        if (getTotalTransactionsMade() == 0) {
+            throw new NoSuchElementException();
+        }
+        return getTransaction(getTotalTransactionsMade() - 1);
     }
 
     /**
      * Calculates the gross earnings, i.e. total income, from all transactions.
      * @return The gross earnings from all transactions in history, in cents.
      */
-    public int getGrossEarnings() {
-        int total = 0;
-        for (Transaction transaction : this.transactions) {
-            total += transaction.getTotal();
+    public synchronized int getGrossEarnings() {
+        if (this.columns != null) {
+            return (int) this.columns.getGrossEarnings(0, size());
         }
-        return total;
+        return this.totals.grossEarnings;
+    }
+
+    /**
+     * Calculates the gross earnings from the transactions finalised within a period of time.
+     * @param from The start of the period, inclusive.
+     * @param to The end of the period, exclusive.
+     * @return The gross earnings from all transactions in the period, in cents.
+     * @throws IllegalArgumentException If the start of the period is after the end.
+     */
+    public synchronized int getGrossEarnings(Instant from, Instant to) {
+        return getTotals(from, to).grossEarnings;
     }
 
     /**
@@ -63,41 +329,52 @@ public class TransactionHistory {
      * @param type The Barcode of the item of interest.
      * @return The gross earnings from all sales of the product type, in cents.
      */
-    public int getGrossEarnings(Barcode type) {
-        int total = 0;
-        for (Transaction transaction : this.transactions) {
-            if (transaction instanceof CategorisedTransaction) {
-                total += ((CategorisedTransaction) transaction).getPurchaseSubtotal(type);
-            } else {
-                // Manually calculate the earnings of a specific type for basic transactions.
-                for (Product product : transaction.getPurchases()) {
-                    if (product.getBarcode().equals(type)) {
-                        total += product.getBasePrice();
-                    }
-                }
-            }
+    public synchronized int getGrossEarnings(Barcode type) {
+        if (this.columns != null) {
+            return (int) this.columns.getGrossEarnings(type, 0, size());
         }
-        return total;
+        return this.totals.grossEarningsByType[type.ordinal()];
     }
 
     /**
      * Calculates the number of transactions made.
      * @return The number of transactions in total.
      */
-    public int getTotalTransactionsMade() {
-        return this.transactions.size();
+    public synchronized int getTotalTransactionsMade() {
+        return size();
+    }
+
+    /**
+     * Calculates the number of transactions finalised within a period of time.
+     * @param from The start of the period, inclusive.
+     * @param to The end of the period, exclusive.
+     * @return The number of transactions in the period.
+     * @throws IllegalArgumentException If the start of the period is after the end.
+     */
+    public synchronized int getTotalTransactionsMade(Instant from, Instant to) {
+        return getTotals(from, to).transactions;
     }
 
     /**
      * Calculates the number of products sold over all transactions.
      * @return The total number of products sold.
      */
-    public int getTotalProductsSold() {
-        int total = 0;
-        for (Transaction transaction : this.transactions) {
-            total += transaction.getPurchases().size();
+    public synchronized int getTotalProductsSold() {
+        if (this.columns != null) {
+            return this.columns.getTotalProductsSold(0, size());
         }
-        return total;
+        return this.totals.productsSold;
+    }
+
+    /**
+     * Calculates the number of products sold in the transactions finalised within a period of time.
+     * @param from The start of the period, inclusive.
+     * @param to The end of the period, exclusive.
+     * @return The total number of products sold in the period.
+     * @throws IllegalArgumentException If the start of the period is after the end.
+     */
+    public synchronized int getTotalProductsSold(Instant from, Instant to) {
+        return getTotals(from, to).productsSold;
     }
 
     /**
@@ -105,16 +382,11 @@ public class TransactionHistory {
      * @param type The Barcode for the product of interest
      * @return The total number of products sold, for that particular product.
      */
-    public int getTotalProductsSold(Barcode type) {
-        int total = 0;
-        for (Transaction transaction : this.transactions) {
-            for (Product product : transaction.getPurchases()) {
-                if (product.getBarcode().equals(type)) {
-                    total++;
-                }
-            }
+    public synchronized int getTotalProductsSold(Barcode type) {
+        if (this.columns != null) {
+            return this.columns.getTotalProductsSold(type, 0, size());
         }
-        return total;
+        return this.totals.productsSoldByType[type.ordinal()];
     }
 
     /**
@@ -122,18 +394,12 @@ public class TransactionHistory {
      * If there are multiple return the one that first was recorded.
      * @return The transaction with the highest gross earnings.
      */
-    public Transaction getHighestGrossingTransaction() {
-        Transaction highest = null;
-        int highestEarnings = 0;
-
-        for (Transaction transaction : this.transactions) {
-            // If same earnings amount, keep the one that was first recorded.
-            if (transaction.getTotal() > highestEarnings) {
-                highest = transaction;
-                highestEarnings = transaction.getTotal();
-            }
+    public synchronized Transaction getHighestGrossingTransaction() {
+        if (this.columns != null) {
+            int highest = this.columns.getHighestGrossingTransaction(0, size());
+            return highest < 0 ? null : this.columns.getTransaction(highest);
         }
-        return highest;
+        return this.highestGrossing < 0 ? null : getTransaction(this.highestGrossing);
     }
 
     /**
@@ -143,48 +409,87 @@ public class TransactionHistory {
      * return the one appearing first in the Barcode enum.
      * @return The identifier for the product type of most popular product.
      */
-    public Barcode getMostPopularProduct() {
-        Map<Barcode, Integer> products = new HashMap<>();
-
-        // Record all products bought and the quantity bought.
-        for (Transaction transaction : this.transactions) {
-            List<Product> productList = transaction.getPurchases();
-            for (Product product : productList) {
-                if (products.containsKey(product.getBarcode())) {
-                    products.put(product.getBarcode(), products.get(product.getBarcode()) + 1);
-                } else {
-                    products.put(product.getBarcode(), 1);
-                }
-            }
+    public synchronized Barcode getMostPopularProduct() {
+        if (this.columns != null) {
+            return this.columns.getMostPopularProduct(0, size());
         }
+        return this.totals.getMostPopularProduct();
+    }
 
-        int highestTotal = 0;
-        Barcode highest = null;
+    /**
+     * Calculates which type of product had the highest quantity sold
+     * in the transactions finalised within a period of time.
+     * <p>
+     * If two products have sold the same quantity resulting in a tie,
+     * return the one appearing first in the Barcode enum.
+     * @param from The start of the period, inclusive.
+     * @param to The end of the period, exclusive.
+     * @return The most popular product in the period, or null if nothing was sold.
+     * @throws IllegalArgumentException If the start of the period is after the end.
+     */
+    public synchronized Barcode getMostPopularProduct(Instant from, Instant to) {
+        return getTotals(from, to).getMostPopularProduct();
+    }
 
-        // Find the product with the highest quantity sold.
-        for (Barcode barcode : products.keySet()) {
-            if (products.get(barcode) > highestTotal) {
-                highestTotal = products.get(barcode);
-                highest = barcode;
-            } else if (products.get(barcode) == highestTotal) {
-                // If two products have the same quantity sold,
-                // record the product that appears first in the Barcode enum.
-                for (Barcode orderedBarcode : Barcode.values()) {
-                    if (orderedBarcode.equals(highest) || orderedBarcode.equals(barcode)) {
-                        highest = orderedBarcode;
-                    }
-                }
+    /**
+     * Retrieves the types of product with the highest quantities sold overall.
+     * Products which have not been sold are not included.
+     * <p>
+     * If two products have sold the same quantity,
+     * the one appearing first in the Barcode enum is ranked higher.
+     * @param k The maximum number of products to retrieve.
+     * @return Up to k products, from the most to the least popular.
+     * @throws IllegalArgumentException If k is negative.
+     */
+    public synchronized List<Barcode> getMostPopularProducts(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Cannot retrieve a negative number of products.");
+        }
+        int[] sold = new int[Barcode.values().length];
+        List<Barcode> products = new ArrayList<>();
+        for (Barcode barcode : Barcode.values()) {
+            sold[barcode.ordinal()] = getTotalProductsSold(barcode);
+            if (sold[barcode.ordinal()] > 0) {
+                products.add(barcode);
             }
         }
-        return highest;
+        // The sort is stable, so products that sold the same quantity stay in enum order.
+        products.sort(Comparator.comparingInt(
+                (Barcode barcode) -> sold[barcode.ordinal()]).reversed());
+        return products.subList(0, Math.min(k, products.size()));
     }
 
+    /**
+     * Retrieves the customers estimated to have spent the most over all transactions.
+     * <p>
+     * Spending is only tracked for a limited number of customers, so with very many customers
+     * the ranking is approximate. Any customer who has spent more than
+     * 1/{@value #TRACKED_CUSTOMERS} of the gross earnings is always included.
+     * @param k The maximum number of customers to retrieve.
+     * @return Up to k customers, in descending order of estimated spending.
+     * @throws IllegalArgumentException If k is negative.
+     */
+    public synchronized List<Customer> getTopCustomers(int k) {
+        return this.topCustomers.getTop(k);
+    }
+
+    /**
+     * Retrieves the estimated amount a customer has spent over all transactions.
+     * @param customer The customer of interest.
+     * @return The estimated spending in cents, which is never less than the amount actually spent
+     *         if the customer is tracked, or 0 if the customer is not tracked.
+     */
+    public synchronized long getEstimatedSpend(Customer customer) {
+        return this.topCustomers.getEstimate(customer);
+    }
+
+
     /**
      * Calculates the average amount spent by customers across all transactions.
      * @return The average amount spent overall, in cents.
      */
-    public double getAverageSpendPerVisit() {
-        if (transactions.isEmpty()) {
+    public synchronized double getAverageSpendPerVisit() {
+        if (getTotalTransactionsMade() == 0) {
             return 0.0d;
         }
         return (double) getGrossEarnings() / getTotalTransactionsMade();
@@ -196,10 +501,10 @@ public class TransactionHistory {
      * @param type The identifier of the product of interest.
      * @return The average discount for the product, in cents
      */
-    public double getAverageProductDiscount(Barcode type) {
+    public synchronized double getAverageProductDiscount(Barcode type) {
 
         // Return 0.0 if no products were sold
-        if (transactions.isEmpty()) {
+        if (getTotalTransactionsMade() == 0) {
             return 0.0d;
         }
 
@@ -207,4 +512,145 @@ public class TransactionHistory {
 
         return (nonDiscount - (double) getGrossEarnings(type)) / getTotalProductsSold(type);
     }
-}
\ No newline at end of file
+
+    /**
+     * Keeps the top customer estimates keyed by each customer's current name and phone number.
+     * A transaction recorded between the two halves of a key change may replace the customer
+     * being changed, in which case the estimates drop it rather than filing it under its new key.
+     */
+    private class TopCustomerUpdater implements CustomerKeyListener {
+        @Override
+        public void beforeKeyChange(Customer customer, String newName, int newPhoneNumber) {
+            synchronized (TransactionHistory.this) {
+                topCustomers.beginRekey(customer);
+            }
+        }
+
+        @Override
+        public void afterKeyChange(Customer customer) {
+            synchronized (TransactionHistory.this) {
+                topCustomers.endRekey(customer);
+            }
+        }
+    }
+
+    /**
+     * Totals of the transactions, products sold and earnings over a group of transactions.
+     */
+    private static class SalesTotals {
+        private int transactions;
+        private int grossEarnings;
+        private int productsSold;
+        private final int[] productsSoldByType = new int[Barcode.values().length];
+        private final int[] grossEarningsByType = new int[Barcode.values().length];
+
+        /**
+         * Adds a transaction to the totals.
+         * @param transaction The finalised transaction to add.
+         */
+        private void add(Transaction transaction) {
+            this.transactions++;
+            this.grossEarnings += transaction.getTotal();
+
+            // Count the products of each type, and their undiscounted price.
+            int[] basePrices = new int[Barcode.values().length];
+            List<Product> purchases = transaction.getPurchases();
+            for (Product product : purchases) {
+                this.productsSoldByType[product.getBarcode().ordinal()]++;
+                basePrices[product.getBarcode().ordinal()] += product.getBasePrice();
+            }
+            this.productsSold += purchases.size();
+
+            for (Barcode type : Barcode.values()) {
+                if (transaction instanceof CategorisedTransaction) {
+                    this.grossEarningsByType[type.ordinal()] +=
+                            ((CategorisedTransaction) transaction).getPurchaseSubtotal(type);
+                } else {
+                    this.grossEarningsByType[type.ordinal()] += basePrices[type.ordinal()];
+                }
+            }
+        }
+
+        /**
+         * Adds a range of the transactions stored in columns to the totals.
+         * @param columns The columns holding the transactions.
+         * @param from The position of the first transaction, inclusive.
+         * @param to The position of the last transaction, exclusive.
+         */
+        private void add(TransactionColumns columns, int from, int to) {
+            if (from == to) {
+                return;
+            }
+            this.transactions += to - from;
+            this.grossEarnings += (int) columns.getGrossEarnings(from, to);
+            this.productsSold += columns.getTotalProductsSold(from, to);
+            for (Barcode type : Barcode.values()) {
+                this.productsSoldByType[type.ordinal()] +=
+                        columns.getTotalProductsSold(type, from, to);
+                this.grossEarningsByType[type.ordinal()] +=
+                        (int) columns.getGrossEarnings(type, from, to);
+            }
+        }
+
+        /**
+         * Adds another group's totals to these totals.
+         * @param other The totals to add.
+         */
+        private void add(SalesTotals other) {
+            this.transactions += other.transactions;
+            this.grossEarnings += other.grossEarnings;
+            this.productsSold += other.productsSold;
+            for (int i = 0; i < this.productsSoldByType.length; i++) {
+                this.productsSoldByType[i] += other.productsSoldByType[i];
+                this.grossEarningsByType[i] += other.grossEarningsByType[i];
+            }
+        }
+
+        /**
+         * Finds the type of product with the highest quantity sold.
+         * @return The most popular product, the first in the Barcode enum if there is a tie,
+         *         or null if nothing was sold.
+         */
+        private Barcode getMostPopularProduct() {
+            int highestTotal = 0;
+            Barcode highest = null;
+
+            // Find the product with the highest quantity sold. Checking the barcodes in order means
+            // that if two products have the same quantity sold, the one appearing first is kept.
+            for (Barcode barcode : Barcode.values()) {
+                if (this.productsSoldByType[barcode.ordinal()] > highestTotal) {
+                    highestTotal = this.productsSoldByType[barcode.ordinal()];
+                    highest = barcode;
+                }
+            }
+            return highest;
+        }
+    }
+
+    /**
+     * The transactions finalised within one hour, along with their combined totals.
+     */
+    private static class HourBucket {
+        private final SalesTotals totals = new SalesTotals();
+        private long[] times = new long[8];
+        private int[] positions = new int[8];
+        private int size;
+
+        /**
+         * Adds a transaction to the hour.
+         * @param transaction The finalised transaction to add.
+         * @param time The time the transaction was finalised, in milliseconds since the epoch.
+         * @param position The position of the transaction in the history.
+         */
+        private void add(Transaction transaction, long time, int position) {
+            if (this.size == this.times.length) {
+                this.times = Arrays.copyOf(this.times, this.size * 2);
+                this.positions = Arrays.copyOf(this.positions, this.size * 2);
+            }
+            this.times[this.size] = time;
+            this.positions[this.size] = position;
+            this.size++;
+            this.totals.add(transaction);
+        }
+    }
+}
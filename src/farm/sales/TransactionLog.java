@@ -0,0 +1,406 @@
+package farm.sales;
+
+import farm.customer.Customer;
+import farm.inventory.product.Product;
+import farm.inventory.product.data.Barcode;
+import farm.sales.transaction.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of recorded transactions, kept in a file so that the farm's
+ * sales history survives a restart.
+ * <p>
+ * Each transaction is written as a compact binary record holding the type of transaction,
+ * the time it was finalised (to the millisecond), the customer's details, the products purchased as runs of identical products in purchase
+ * order, any discounts, and the total. Records are collected in a buffer and written through
+ * a {@link FileChannel} in groups, and the file is only forced to disk once a number of records
+ * have been written. Larger groups mean fewer writes, at the cost of more of the most recent
+ * sales being lost if the program or machine stops unexpectedly.
+ * <p>
+ * When a log is opened, the transactions already in it are read back so the history can be
+ * rebuilt. A record that was only partly written when the program stopped is discarded.
+ * <p>
+ * If a group of records cannot be written, anything written of it is cut from the end of the
+ * file, and the records appended before the failed one are kept to be written with the next
+ * group. If the file cannot be cut back, the log refuses any further records rather than
+ * leaving them after a partly written one.
+ */
+public class TransactionLog implements Closeable {
+    /**
+     * The number of records written to the file in each group, by default.
+     */
+    public static final int DEFAULT_RECORDS_PER_WRITE = 1;
+
+    /**
+     * The number of records written between each force to disk, by default.
+     */
+    public static final int DEFAULT_RECORDS_PER_SYNC = 32;
+
+    private final FileChannel channel;
+    private final int recordsPerWrite;
+    private final int recordsPerSync;
+    private final List<Transaction> recoveredTransactions;
+    private final CRC32 checksum;
+
+    private ByteBuffer pending;
+    private int pendingRecords;
+    private int unsyncedRecords;
+
+    // The end of the last complete record in the file.
+    private long end;
+    // Whether a failed write may have left a partly written record in the file.
+    private boolean damaged;
+
+    /**
+     * Opens the transaction log at the given path, creating it if it does not exist,
+     * using the default write and sync batching.
+     * @param path The path of the log file.
+     * @throws IOException If the log cannot be opened or read.
+     */
+    public TransactionLog(Path path) throws IOException {
+        this(path, DEFAULT_RECORDS_PER_WRITE, DEFAULT_RECORDS_PER_SYNC);
+    }
+
+    /**
+     * Opens the transaction log at the given path, creating it if it does not exist.
+     * @param path The path of the log file.
+     * @param recordsPerWrite How many records to collect before writing them to the file.
+     * @param recordsPerSync How many records to write before forcing the file to disk.
+     * @throws IOException If the log cannot be opened or read.
+     * @throws IllegalArgumentException If either batch size is less than 1.
+     */
+    public TransactionLog(Path path, int recordsPerWrite, int recordsPerSync) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE), recordsPerWrite, recordsPerSync);
+    }
+
+    /**
+     * Opens a transaction log kept in the given channel, which is closed if the log cannot be
+     * opened.
+     * @param channel The channel of the log file, open for reading and writing.
+     * @param recordsPerWrite How many records to collect before writing them to the file.
+     * @param recordsPerSync How many records to write before forcing the file to disk.
+     * @throws IOException If the log cannot be read.
+     * @throws IllegalArgumentException If either batch size is less than 1.
+     */
+    TransactionLog(FileChannel channel, int recordsPerWrite, int recordsPerSync)
+            throws IOException {
+        this.channel = channel;
+        this.recordsPerWrite = recordsPerWrite;
+        this.recordsPerSync = recordsPerSync;
+        this.checksum = new CRC32();
+        this.pending = ByteBuffer.allocate(4096);
+        try {
+            if (recordsPerWrite < 1 || recordsPerSync < 1) {
+                throw new IllegalArgumentException("Batch sizes must be at least 1.");
+            }
+            this.recoveredTransactions = Collections.unmodifiableList(recover());
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the transactions that were already in the log when it was opened,
+     * in the order they were recorded.
+     * @return The finalised transactions read from the log.
+     */
+    public List<Transaction> getRecoveredTransactions() {
+        return this.recoveredTransactions;
+    }
+
+    /**
+     * Appends a record of the given transaction to the log.
+     * The record is written to the file once enough records have been collected.
+     * @param transaction The transaction to append.
+     * @throws IOException If the record could not be written, in which case it is not kept.
+     * @requires The transaction is finalised.
+     */
+    public synchronized void append(Transaction transaction) throws IOException {
+        checkUndamaged();
+        int start = this.pending.position();
+        encode(transaction);
+        this.pendingRecords++;
+        if (this.pendingRecords >= this.recordsPerWrite) {
+            try {
+                writePending(false);
+            } catch (IOException e) {
+                // Drop the failed record, but keep the earlier ones for the next write.
+                this.pending.position(start);
+                this.pendingRecords--;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Writes every collected record to the file and forces the file to disk.
+     * @throws IOException If the records could not be written.
+     */
+    public synchronized void flush() throws IOException {
+        checkUndamaged();
+        writePending(true);
+    }
+
+    /**
+     * Flushes any collected records and closes the log.
+     * @throws IOException If the records could not be written or the file could not be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (!this.damaged) {
+                flush();
+            }
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Ensures no failed write has left a partly written record in the file.
+     * @throws IOException If the log is damaged.
+     */
+    private void checkUndamaged() throws IOException {
+        if (this.damaged) {
+            throw new IOException("The log could not be repaired after a failed write.");
+        }
+    }
+
+    /**
+     * Writes the collected records to the file, forcing it to disk if enough records
+     * have been written since it last was.
+     * <p>
+     * If the records cannot be written, anything written of them is cut from the end of the file
+     * and they are kept to be written again.
+     * @param force Whether to force the file to disk regardless.
+     * @throws IOException If the records could not be written.
+     */
+    private void writePending(boolean force) throws IOException {
+        this.pending.flip();
+        boolean written = false;
+        try {
+            while (this.pending.hasRemaining()) {
+                this.channel.write(this.pending);
+            }
+            int unsynced = this.unsyncedRecords + this.pendingRecords;
+            if (unsynced > 0 && (force || unsynced >= this.recordsPerSync)) {
+                this.channel.force(false);
+                unsynced = 0;
+            }
+            this.unsyncedRecords = unsynced;
+            written = true;
+        } finally {
+            if (written) {
+                this.pending.clear();
+                this.pendingRecords = 0;
+                this.end = this.channel.position();
+            } else {
+                // Collect more records after the ones that could not be written.
+                this.pending.position(this.pending.limit()).limit(this.pending.capacity());
+                truncateToEnd();
+            }
+        }
+    }
+
+    /**
+     * Cuts anything after the last complete record from the end of the file, marking the log as
+     * damaged if that fails.
+     */
+    private void truncateToEnd() {
+        try {
+            this.channel.truncate(this.end);
+            this.channel.position(this.end);
+        } catch (IOException e) {
+            this.damaged = true;
+        }
+    }
+
+    /**
+     * Encodes a transaction into the buffer of records waiting to be written.
+     * <p>
+     * A record consists of the length of its body, the body itself, and a checksum of the body.
+     * @param transaction The transaction to encode.
+     */
+    private void encode(Transaction transaction) {
+        Customer customer = transaction.getAssociatedCustomer();
+        byte[] name = customer.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] address = customer.getAddress().getBytes(StandardCharsets.UTF_8);
+
+        // Collapse consecutive identical products into runs, keeping the purchase order.
+        List<Product> purchases = transaction.getPurchases();
+        List<int[]> runs = new ArrayList<>();
+        for (Product product : purchases) {
+            int[] last = runs.isEmpty() ? null : runs.getLast();
+            if (last != null && last[0] == product.getBarcode().ordinal()
+                    && last[1] == product.getQuality().ordinal()) {
+                last[2]++;
+            } else {
+                runs.add(new int[] {product.getBarcode().ordinal(),
+                        product.getQuality().ordinal(), 1});
+            }
+        }
+
+        byte kind = TransactionRecords.kindOf(transaction);
+        Map<Barcode, Integer> discounts = TransactionRecords.discountsOf(transaction);
+
+        int bodyLength = 1 + 8 + (4 + name.length) + 4 + (4 + address.length)
+                + 4 + runs.size() * 6 + 1 + discounts.size() * 5 + 4;
+        ensureCapacity(4 + bodyLength + 4);
+
+        this.pending.putInt(bodyLength);
+        int bodyStart = this.pending.position();
+        this.pending.put(kind);
+        this.pending.putLong(transaction.getFinalisedTime().toEpochMilli());
+        this.pending.putInt(name.length).put(name);
+        this.pending.putInt(customer.getPhoneNumber());
+        this.pending.putInt(address.length).put(address);
+        this.pending.putInt(runs.size());
+        for (int[] run : runs) {
+            this.pending.put((byte) run[0]).put((byte) run[1]).putInt(run[2]);
+        }
+        this.pending.put((byte) discounts.size());
+        for (Map.Entry<Barcode, Integer> discount : discounts.entrySet()) {
+            this.pending.put((byte) discount.getKey().ordinal()).putInt(discount.getValue());
+        }
+        this.pending.putInt(transaction.getTotal());
+
+        this.checksum.reset();
+        this.checksum.update(this.pending.array(), bodyStart, bodyLength);
+        this.pending.putInt((int) this.checksum.getValue());
+    }
+
+    /**
+     * Grows the buffer of records waiting to be written if it cannot fit the given number of
+     * extra bytes.
+     * @param extra The number of bytes about to be added.
+     */
+    private void ensureCapacity(int extra) {
+        if (this.pending.remaining() < extra) {
+            int capacity = Math.max(this.pending.capacity() * 2, this.pending.position() + extra);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            this.pending.flip();
+            grown.put(this.pending);
+            this.pending = grown;
+        }
+    }
+
+    /**
+     * Reads every complete record in the file, discarding anything after the last one,
+     * and positions the file for new records to be appended.
+     * @return The transactions read from the file.
+     * @throws IOException If the file cannot be read, or a record contradicts current prices.
+     */
+    private List<Transaction> recover() throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        long size = this.channel.size();
+        long end = 0;
+
+        if (size > 0) {
+            MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Map<Customer, Customer> customers = new HashMap<>();
+            Product[][] products = TransactionRecords.createProducts();
+
+            while (buffer.remaining() >= 4) {
+                int bodyLength = buffer.getInt(buffer.position());
+                if (bodyLength <= 0 || buffer.remaining() - 8 < bodyLength) {
+                    break;
+                }
+                int bodyStart = buffer.position() + 4;
+                this.checksum.reset();
+                this.checksum.update(buffer.slice(bodyStart, bodyLength));
+                if ((int) this.checksum.getValue() != buffer.getInt(bodyStart + bodyLength)) {
+                    break;
+                }
+
+                buffer.position(bodyStart);
+                transactions.add(decode(buffer, customers, products, transactions.size()));
+                buffer.position(bodyStart + bodyLength + 4);
+                end = buffer.position();
+            }
+        }
+
+        // Drop any partly written record so new records follow the last complete one.
+        if (end < size) {
+            this.channel.truncate(end);
+        }
+        this.channel.position(end);
+        this.end = end;
+        return transactions;
+    }
+
+    /**
+     * Decodes the body of a single record into a finalised transaction.
+     * @param buffer The buffer, positioned at the start of the record's body.
+     * @param customers The customers decoded so far, so repeat customers share an instance.
+     * @param products A shared product instance for every barcode and quality.
+     * @param index The position of the record in the log.
+     * @return The decoded transaction.
+     * @throws IOException If the recorded total does not match the decoded transaction.
+     */
+    private Transaction decode(ByteBuffer buffer, Map<Customer, Customer> customers,
+                               Product[][] products, int index) throws IOException {
+        byte kind = buffer.get();
+        Instant time = Instant.ofEpochMilli(buffer.getLong());
+        String name = readString(buffer);
+        int phoneNumber = buffer.getInt();
+        String address = readString(buffer);
+
+        Customer customer = new Customer(name, phoneNumber, address);
+        Customer existing = customers.putIfAbsent(customer, customer);
+        if (existing != null) {
+            customer = existing;
+        }
+
+        List<Product> purchases = new ArrayList<>();
+        int runs = buffer.getInt();
+        for (int i = 0; i < runs; i++) {
+            Product product = products[buffer.get()][buffer.get()];
+            purchases.addAll(Collections.nCopies(buffer.getInt(), product));
+        }
+
+        Map<Barcode, Integer> discounts = new EnumMap<>(Barcode.class);
+        int discountCount = buffer.get();
+        for (int i = 0; i < discountCount; i++) {
+            discounts.put(Barcode.values()[buffer.get()], buffer.getInt());
+        }
+        int total = buffer.getInt();
+
+        Transaction transaction =
+                TransactionRecords.rebuild(kind, customer, discounts, purchases, time);
+
+        if (transaction.getTotal() != total) {
+            throw new IOException("Transaction " + index
+                    + " in the log does not match the current product prices.");
+        }
+        return transaction;
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     * @param buffer The buffer, positioned at the start of the string's length.
+     * @return The string read.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
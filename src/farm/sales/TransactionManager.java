@@ -26,6 +26,14 @@ public class TransactionManager {
         return currentTransaction != null;
     }
 
+    /**
+     * Retrieves the transaction currently in progress.
+     * @return The ongoing transaction, or null if no transaction is in progress.
+     */
+    public Transaction getOngoingTransaction() {
+        return this.currentTransaction;
+    }
+
     /**
      * Begins managing the specified transaction, provided one is not already ongoing.
      * @param transaction The transaction to set as the manager's ongoing transaction.
@@ -79,6 +87,23 @@ public class TransactionManager {
 
     }
 
+    /**
+     * Stops managing the currently ongoing transaction without finalising it,
+     * and readies the TransactionManager to accept a new ongoing transaction.
+     * @return The abandoned transaction.
+     * @throws FailedTransactionException If and only if there is no
+     *                                    currently ongoing transaction to cancel.
+     */
+    public Transaction cancelCurrentTransaction()
+                                    throws FailedTransactionException {
+        if (!hasOngoingTransaction()) {
+            throw new FailedTransactionException("No ongoing transaction");
+        }
+        Transaction cancelledTransaction = currentTransaction;
+        this.currentTransaction = null;
+        return cancelledTransaction;
+    }
+
 
 
 }
@@ -0,0 +1,113 @@
+package farm.sales;
+
+import farm.customer.Customer;
+import farm.inventory.product.*;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import farm.sales.transaction.CategorisedTransaction;
+import farm.sales.transaction.SpecialSaleTransaction;
+import farm.sales.transaction.Transaction;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers shared by the stores which keep transactions as plain values rather than objects,
+ * to break a transaction down into those values and to rebuild it from them.
+ */
+final class TransactionRecords {
+    /**
+     * The kind of a plain {@link Transaction}.
+     */
+    static final byte BASIC = 0;
+
+    /**
+     * The kind of a {@link CategorisedTransaction}.
+     */
+    static final byte CATEGORISED = 1;
+
+    /**
+     * The kind of a {@link SpecialSaleTransaction}.
+     */
+    static final byte SPECIAL_SALE = 2;
+
+    private TransactionRecords() {
+    }
+
+    /**
+     * Determines the kind of a transaction.
+     * @param transaction The transaction.
+     * @return The kind of the transaction.
+     */
+    static byte kindOf(Transaction transaction) {
+        if (transaction instanceof SpecialSaleTransaction) {
+            return SPECIAL_SALE;
+        } else if (transaction instanceof CategorisedTransaction) {
+            return CATEGORISED;
+        }
+        return BASIC;
+    }
+
+    /**
+     * Retrieves the non-zero discounts of a transaction.
+     * @param transaction The transaction.
+     * @return The discount percentage of each discounted product type, in barcode order.
+     */
+    static Map<Barcode, Integer> discountsOf(Transaction transaction) {
+        Map<Barcode, Integer> discounts = new EnumMap<>(Barcode.class);
+        if (transaction instanceof SpecialSaleTransaction sale) {
+            for (Barcode barcode : Barcode.values()) {
+                if (sale.getDiscountAmount(barcode) != 0) {
+                    discounts.put(barcode, sale.getDiscountAmount(barcode));
+                }
+            }
+        }
+        return discounts;
+    }
+
+    /**
+     * Rebuilds a finalised transaction from its values.
+     * @param kind The kind of the transaction.
+     * @param customer The customer for the transaction, whose cart is used to hold the purchases.
+     * @param discounts The discounts of the transaction, only used by special sales.
+     * @param purchases The products purchased, in order.
+     * @param time The time at which the transaction was finalised.
+     * @return The finalised transaction.
+     * @requires The customer's cart is empty and not in use by an ongoing transaction.
+     */
+    static Transaction rebuild(byte kind, Customer customer, Map<Barcode, Integer> discounts,
+                               List<Product> purchases, Instant time) {
+        Transaction transaction = switch (kind) {
+            case SPECIAL_SALE -> new SpecialSaleTransaction(customer, discounts);
+            case CATEGORISED -> new CategorisedTransaction(customer);
+            default -> new Transaction(customer);
+        };
+        for (Product product : purchases) {
+            customer.getCart().addProduct(product);
+        }
+        transaction.finalise(time);
+        return transaction;
+    }
+
+    /**
+     * Creates one product instance for every barcode and quality,
+     * indexed by their ordinals, to be shared by every rebuilt transaction.
+     * @return The product instances.
+     */
+    static Product[][] createProducts() {
+        Product[][] products = new Product[Barcode.values().length][Quality.values().length];
+        for (Barcode barcode : Barcode.values()) {
+            for (Quality quality : Quality.values()) {
+                products[barcode.ordinal()][quality.ordinal()] = switch (barcode) {
+                    case EGG -> new Egg(quality);
+                    case JAM -> new Jam(quality);
+                    case MILK -> new Milk(quality);
+                    case WOOL -> new Wool(quality);
+                };
+            }
+        }
+        return products;
+    }
+}
@@ -3,15 +3,31 @@ package farm.sales.transaction;
 import farm.customer.Customer;
 import farm.inventory.product.Product;
 import farm.inventory.product.data.Barcode;
-import farm.sales.ReceiptPrinter;
+import farm.sales.ReceiptWriter;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.*;
 
 /**
  * A transaction type that allows products to be categorised by their types, not solely as isolated individual products.
  * The resulting receipt therefore displays purchased types with an associated quantity purchased and subtotal, rather than a single line for each product.
+ * <p>
+ * Once finalised, the quantity and subtotal of each purchased type are summarised once
+ * and reused, rather than being recalculated from the purchases on every request.
  */
 public class CategorisedTransaction extends Transaction {
+    /**
+     * The headings of the purchases section of a categorised receipt.
+     */
+    protected static final String[] HEADINGS = {"Item", "Qty", "Price (ea.)", "Subtotal"};
+
+    /**
+     * Every barcode, in order. Kept to avoid copying the array on each call to Barcode.values().
+     */
+    protected static final Barcode[] BARCODES = Barcode.values();
+
+    private Map<Barcode, PurchaseSummary> summary;
 
     /**
      * Construct a new categorised transaction for an associated customer.
@@ -21,16 +37,23 @@ public class CategorisedTransaction extends Transaction {
         super(customer);
     }
 
+    /**
+     * Mark a transaction as finalised at the given time, and summarise its purchases by type.
+     * @param time The time at which the sale was completed.
+     */
+    @Override
+    public void finalise(Instant time) {
+        super.finalise(time);
+        this.summary = summarisePurchases();
+    }
+
     /**
      * Retrieves all unique product types of the purchases associated with the transaction.
-     * @return A set of all product types in the transaction.
+     * @return A set of all product types in the transaction, in the order they appear in Barcode.
+     * @ensures The returned set cannot modify the transaction.
      */
     public Set<Barcode> getPurchasedTypes() {
-        Set<Barcode> barcodes = new HashSet<>();
-        for (Product purchase : getPurchases()) {
-            barcodes.add(purchase.getBarcode());
-        }
-        return barcodes;
+        return Collections.unmodifiableSet(getSummary().keySet());
     }
 
 
@@ -60,14 +83,8 @@ public class CategorisedTransaction extends Transaction {
      * @return The number of products of the specified type associated with the transaction.
      */
     public int getPurchaseQuantity(Barcode type) {
-        List<Product> purchases = this.getPurchases();
-        int count = 0;
-        for (Product purchase : purchases) {
-            if (purchase.getBarcode().equals(type)) {
-                count++;
-            }
-        }
-        return count;
+        PurchaseSummary purchases = getSummary().get(type);
+        return purchases == null ? 0 : purchases.quantity;
     }
 
     /**
@@ -77,56 +94,75 @@ public class CategorisedTransaction extends Transaction {
      *         or 0 if no items of that type are associated with the transaction.
      */
     public int getPurchaseSubtotal(Barcode type) {
-        List<Product> purchases = getPurchases();
-        int total = 0;
-        for (Product purchase : purchases) {
-            if (purchase.getBarcode().equals(type)) {
-                int price = purchase.getBasePrice();
-                total = total + price;
-            }
-        }
-        return total;
+        PurchaseSummary purchases = getSummary().get(type);
+        return purchases == null ? 0 : purchases.subtotal;
     }
 
 
     @Override
-    public String getReceipt() {
+    public void writeReceipt(ReceiptWriter writer) throws IOException {
         // Check if the transaction is finalized
         if (!isFinalised()) {
-            return ReceiptPrinter.createActiveReceipt();
+            writer.writeActiveReceipt();
+            return;
         }
 
-        // Set up headings and total.
-        List<List<String>> entries = new ArrayList<>();
-        String total = convertPrice(getTotal());
-
-        // Get purchased products grouped by Barcode
-        Map<Barcode, List<Product>> purchasesByType = getPurchasesByType();
-
-        // Iterate over sorted barcodes to ensure correct order
-        for (Barcode barcode : Barcode.values()) {
-            if (purchasesByType.containsKey(barcode)) {
-                int pricePerItem = barcode.getBasePrice();
-                int qty = getPurchaseQuantity(barcode);
-                int subtotal = getPurchaseSubtotal(barcode);
-
-                // Add formatted entry
-                entries.add(Arrays.asList(
-                    barcode.getDisplayName(),
-                    String.valueOf(qty),
-                    convertPrice(pricePerItem),
-                    convertPrice(subtotal)
-                ));
+        // The summary is ordered by barcode, ensuring the correct order.
+        writer.beginReceipt(HEADINGS);
+        for (Barcode barcode : BARCODES) {
+            if (this.summary.containsKey(barcode)) {
+                writer.fitColumn(0, barcode.getDisplayName().length());
+                writer.fitColumn(1, ReceiptWriter.numberLength(getPurchaseQuantity(barcode)));
+                writer.fitColumn(2, ReceiptWriter.priceLength(barcode.getBasePrice()));
+                writer.fitColumn(3, ReceiptWriter.priceLength(getPurchaseSubtotal(barcode)));
             }
         }
+        writer.writeHeadings();
+        for (Barcode barcode : BARCODES) {
+            if (this.summary.containsKey(barcode)) {
+                writer.cell().text(barcode.getDisplayName());
+                writer.cell().number(getPurchaseQuantity(barcode));
+                writer.cell().price(barcode.getBasePrice());
+                writer.cell().price(getPurchaseSubtotal(barcode));
+                writer.endLine();
+            }
+        }
+        writer.writeTotal(getTotal());
+        writer.writeThankYou(getAssociatedCustomer().getName());
+    }
 
-        // Add the total to the entries
-        List<String> headings = Arrays.asList("Item", "Qty", "Price (ea.)", "Subtotal");
-
-        // Generate and return the receipt
-        return ReceiptPrinter.createReceipt(
-                headings, entries, total, getAssociatedCustomer().getName());
+    /**
+     * Retrieves the summary of purchases by type, which is only fixed once finalised.
+     * @return The quantity and subtotal of each purchased type.
+     */
+    private Map<Barcode, PurchaseSummary> getSummary() {
+        if (this.summary != null) {
+            return this.summary;
+        }
+        // The customer's cart may still change, so summarise its current contents.
+        return summarisePurchases();
     }
 
+    /**
+     * Summarises the purchases associated with the transaction in a single pass.
+     * @return The quantity and subtotal of each purchased type, ordered by barcode.
+     */
+    private Map<Barcode, PurchaseSummary> summarisePurchases() {
+        Map<Barcode, PurchaseSummary> purchasesByType = new EnumMap<>(Barcode.class);
+        for (Product purchase : getPurchases()) {
+            PurchaseSummary purchases = purchasesByType.computeIfAbsent(
+                    purchase.getBarcode(), barcode -> new PurchaseSummary());
+            purchases.quantity++;
+            purchases.subtotal += purchase.getBasePrice();
+        }
+        return purchasesByType;
+    }
 
-}
\ No newline at end of file
+    /**
+     * The number of products of a single type purchased, and their total undiscounted price.
+     */
+    private static class PurchaseSummary {
+        private int quantity;
+        private int subtotal;
+    }
+}
@@ -3,9 +3,9 @@ package farm.sales.transaction;
 import farm.customer.Customer;
 import farm.inventory.product.Product;
 import farm.inventory.product.data.Barcode;
-import farm.sales.ReceiptPrinter;
+import farm.sales.ReceiptWriter;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -86,21 +86,15 @@ public class SpecialSaleTransaction extends CategorisedTransaction {
     public int getTotalSaved() {
         double total = 0.0;
 
-        // Get purchased products
-        Map<Barcode, List<Product>> purchases = getPurchasesByType();
-
         // Iterate through each discount
         for (Map.Entry<Barcode, Integer> discount : discounts.entrySet()) {
             Barcode barcode = discount.getKey();
             int discountAmount = discount.getValue();
 
             // Check if a purchase with that barcode was made.
-            if (purchases.containsKey(barcode)) {
-                List<Product> products = purchases.get(barcode);
-                int productTotal = 0;
-                for (Product product : products) {
-                    productTotal += product.getBasePrice();
-                }
+            if (getPurchaseQuantity(barcode) > 0) {
+                // The undiscounted subtotal for this product type.
+                int productTotal = super.getPurchaseSubtotal(barcode);
 
                 // Calculate the amount saved by applying the discount
                 double amountSaved = (productTotal * discountAmount) / 100.0;
@@ -145,49 +139,46 @@ public class SpecialSaleTransaction extends CategorisedTransaction {
 
 
     @Override
-    public String getReceipt() {
+    public void writeReceipt(ReceiptWriter writer) throws IOException {
         if (!isFinalised()) {
-            return ReceiptPrinter.createActiveReceipt();
+            writer.writeActiveReceipt();
+            return;
         }
 
-        List<String> headings = List.of("Item", "Qty", "Price (ea.)", "Subtotal");
-        String customer = getAssociatedCustomer().getName();
-
-        List<List<String>> receiptEntries = new ArrayList<>();
-        String totalCost = convertPrice(getTotal());
-        int totalSavedNum = getTotalSaved();
-        String totalSaved = convertPrice(getTotalSaved());
+        writer.beginReceipt(HEADINGS);
+        for (Barcode barcode : BARCODES) {
+            int quantity = getPurchaseQuantity(barcode);
+            if (quantity > 0) {
+                writer.fitColumn(0, barcode.getDisplayName().length());
+                writer.fitColumn(1, ReceiptWriter.numberLength(quantity));
+                writer.fitColumn(2, ReceiptWriter.priceLength(barcode.getBasePrice()));
+                writer.fitColumn(3, ReceiptWriter.priceLength(getPurchaseSubtotal(barcode)));
+            }
+        }
+        writer.writeHeadings();
 
-        for (Barcode barcode : Barcode.values()) {
+        for (Barcode barcode : BARCODES) {
             int quantity = getPurchaseQuantity(barcode);
 
             if (quantity > 0) {
-                List<String> entry = new ArrayList<>();
-
-                int basePrice = barcode.getBasePrice();
-                int subtotal = getPurchaseSubtotal(barcode);
-
-                entry.add(barcode.getDisplayName());
-                entry.add(String.valueOf(quantity));
-                entry.add(convertPrice(basePrice));
-                entry.add(convertPrice(subtotal));
-                if (discounts.containsKey(barcode) && discounts.get(barcode) > 0) {
-                    String message = "Discount applied! " + discounts.get(barcode)
-                            + "% off " + barcode.getDisplayName();
-                    entry.add(message);
+                writer.cell().text(barcode.getDisplayName());
+                writer.cell().number(quantity);
+                writer.cell().price(barcode.getBasePrice());
+                writer.cell().price(getPurchaseSubtotal(barcode));
+                int discount = getDiscountAmount(barcode);
+                if (discount > 0) {
+                    // The discount message wraps onto its own line.
+                    writer.cell().text("Discount applied! ").number(discount)
+                            .text("% off ").text(barcode.getDisplayName());
                 }
-                receiptEntries.add(entry);
+                writer.endLine();
             }
         }
-        if (totalSavedNum > 0) {
-            return ReceiptPrinter.createReceipt(
-                    headings, receiptEntries, totalCost, customer, totalSaved
-            );
-        } else {
-            return ReceiptPrinter.createReceipt(headings, receiptEntries, totalCost, customer);
+        writer.writeTotal(getTotal());
+        int totalSaved = getTotalSaved();
+        if (totalSaved > 0) {
+            writer.writeSavings(totalSaved);
         }
-
+        writer.writeThankYou(getAssociatedCustomer().getName());
     }
 }
-
-
@@ -2,19 +2,34 @@ package farm.sales.transaction;
 
 import farm.customer.*;
 import farm.inventory.product.Product;
-import farm.sales.ReceiptPrinter;
+import farm.sales.ReceiptWriter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 
 /**
  * Transactions keeps track of what items are to be (or have been) purchased and by whom.
+ * <p>
+ * Once a transaction is finalised its receipt is only rendered on the first request, and shared
+ * with later requests for as long as it is still in use. A receipt that nothing else refers to
+ * is left for the garbage collector, so old transactions do not keep their receipts in memory.
  */
 public class Transaction {
+    private static final String[] HEADINGS = {"Item", "Price"};
+
     private Customer customer;
     private List<Product> purchases;
     private boolean finalised;
+    private Instant finalisedTime;
+
+    // The rendered receipt, which the garbage collector clears once it is no longer in use.
+    private volatile RenderedReceipt receipt;
 
     /**
      * Construct a new transaction for an associated customer.
@@ -45,13 +60,14 @@ public class Transaction {
      * If the transaction is instead still active,
      * it is all products currently in the associated customer's cart.
      * @return the list of purchases comprising the transaction.
-     * @ensures The returned list is a shallow copy and cannot modify the original transaction
+     * @ensures The returned list cannot modify the original transaction. Once the transaction
+     *          is finalised, the same unmodifiable list is returned on every call.
      */
     public List<Product> getPurchases() {
         if (!this.finalised) {
             return getAssociatedCustomer().getCart().getContents();
         }
-        return new ArrayList<>(this.purchases);
+        return this.purchases;
     }
 
     /**
@@ -75,13 +91,32 @@ public class Transaction {
         return this.finalised;
     }
 
+    /**
+     * Retrieves the time at which the transaction was finalised.
+     * @return The time the sale was completed, or null if the transaction is still active.
+     */
+    public Instant getFinalisedTime() {
+        return this.finalisedTime;
+    }
+
     /**
      * Mark a transaction as finalised and update the transaction's internal state accordingly.
+     * The transaction is stamped with the current time.
      */
     public void finalise() {
+        finalise(Instant.now());
+    }
+
+    /**
+     * Mark a transaction as finalised at the given time,
+     * and update the transaction's internal state accordingly.
+     * @param time The time at which the sale was completed.
+     */
+    public void finalise(Instant time) {
         this.finalised = true;
+        this.finalisedTime = time;
         // Set all purchases as final and empty cart.
-        this.purchases = new ArrayList<>(this.customer.getCart().getContents());
+        this.purchases = Collections.unmodifiableList(this.customer.getCart().getContents());
         this.customer.getCart().setEmpty();
     }
 
@@ -115,41 +150,79 @@ public class Transaction {
 
     /**
      * Converts the transaction into a formatted receipt for display.
+     * <p>
+     * The receipt of a finalised transaction is reused between calls, unless the customer's name
+     * has changed since it was rendered.
      * @return The styled receipt representation of this transaction
      */
     public String getReceipt() {
-
-        // Determine the headings of the receipt.
-        List<String> headings = new ArrayList<>();
-        headings.add("Item");
-        headings.add("Price");
-
-        // Create an active receipt if the transaction is not finalised.
-        if (!finalised) {
-            return ReceiptPrinter.createActiveReceipt();
+        if (!this.finalised) {
+            return renderReceipt();
         }
+        RenderedReceipt rendered = this.receipt;
+        String receipt = rendered == null ? null : rendered.get();
+        String customerName = this.customer.getName();
+        if (receipt == null || !rendered.customerName.equals(customerName)) {
+            receipt = renderReceipt();
+            this.receipt = new RenderedReceipt(customerName, receipt);
+        }
+        return receipt;
+    }
 
-        String total = convertPrice(this.getTotal());
-
-        List<List<String>> entries = new ArrayList<>();
-        // Iterate through each purchase and add its information to a row.
-        for (Product product : this.purchases) {
-            List<String> entry = new ArrayList<>();
-            entry.add(product.getDisplayName());
-            entry.add(convertPrice(product.getBasePrice()));
-            entries.add(entry);
+    /**
+     * Renders the receipt of the transaction in its current state.
+     * @return The styled receipt representation of this transaction.
+     */
+    private String renderReceipt() {
+        StringBuilder receipt = new StringBuilder();
+        try {
+            writeReceipt(new ReceiptWriter(receipt));
+        } catch (IOException e) {
+            throw new UncheckedIOException("A StringBuilder cannot fail to append", e);
         }
-        return ReceiptPrinter.createReceipt(headings, entries, total, this.customer.getName());
+        return receipt.toString();
     }
 
     /**
-     * Helper method to convert a price in cents to a string representation in dollars.
-     * @param price The integer price in cents.
-     * @return A formatted string for the price.
+     * Writes the transaction as a formatted receipt, the same as {@link #getReceipt()}.
+     * @param writer The writer to write the receipt with.
+     * @throws IOException If the receipt could not be written.
      */
-    protected String convertPrice(int price) {
-        return "$" + String.format("%.2f", price / 100.0);
+    public void writeReceipt(ReceiptWriter writer) throws IOException {
+        // Write an active receipt if the transaction is not finalised.
+        if (!this.finalised) {
+            writer.writeActiveReceipt();
+            return;
+        }
+
+        // Size the columns to fit every purchase, then write a row for each.
+        writer.beginReceipt(HEADINGS);
+        for (int i = 0; i < this.purchases.size(); i++) {
+            Product product = this.purchases.get(i);
+            writer.fitColumn(0, product.getDisplayName().length());
+            writer.fitColumn(1, ReceiptWriter.priceLength(product.getBasePrice()));
+        }
+        writer.writeHeadings();
+        for (int i = 0; i < this.purchases.size(); i++) {
+            Product product = this.purchases.get(i);
+            writer.cell().text(product.getDisplayName());
+            writer.cell().price(product.getBasePrice());
+            writer.endLine();
+        }
+        writer.writeTotal(this.getTotal());
+        writer.writeThankYou(this.customer.getName());
     }
 
+    /**
+     * A weak reference to the receipt rendered for a finalised transaction,
+     * along with the name of the customer when it was rendered.
+     */
+    private static class RenderedReceipt extends WeakReference<String> {
+        private final String customerName;
 
+        private RenderedReceipt(String customerName, String receipt) {
+            super(receipt);
+            this.customerName = customerName;
+        }
+    }
 }
@@ -0,0 +1,171 @@
+package farm.core;
+
+import farm.customer.AddressBook;
+import farm.customer.Customer;
+import farm.inventory.FancyInventory;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import farm.sales.TransactionHistory;
+import farm.sales.TransactionLog;
+import farm.sales.transaction.Transaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CheckoutSessionTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FancyInventory inventory;
+    private StockReservations reservations;
+    private Farm farm;
+    private Customer ali;
+
+    @Before
+    public void setUp() throws InvalidStockRequestException {
+        this.inventory = new FancyInventory();
+        inventory.addProduct(Barcode.EGG, Quality.GOLD, 5);
+        inventory.addProduct(Barcode.MILK, Quality.REGULAR, 2);
+        this.reservations = new StockReservations(inventory, Duration.ofMinutes(30));
+        this.farm = new Farm(inventory, new AddressBook());
+        this.ali = new Customer("Ali", 33651111, "UQ");
+    }
+
+    @Test
+    public void reserveTest() throws FailedTransactionException {
+        Transaction transaction = new Transaction(ali);
+        assertEquals("Incorrect number reserved", 3,
+                reservations.reserve(transaction, Barcode.EGG, 3).size());
+        assertEquals("Reserved stock should leave the inventory", 2,
+                inventory.getStockedQuantity(Barcode.EGG));
+        assertEquals("Incorrect reserved quantity", 3,
+                reservations.getReservedQuantity(Barcode.EGG));
+
+        assertEquals("Only the remaining stock should be reserved", 2,
+                reservations.reserve(transaction, Barcode.MILK, 4).size());
+        assertEquals("Incorrect reserved quantity", 2,
+                reservations.getReservedQuantity(Barcode.MILK));
+    }
+
+    @Test
+    public void reserveWithoutTransactionTest() throws FailedTransactionException {
+        try {
+            reservations.reserve(null, Barcode.EGG, 2);
+            fail("Reserving without a transaction should fail");
+        } catch (IllegalArgumentException expected) {
+            // The stock must be untouched.
+        }
+        assertEquals("Stock should not be taken without a transaction", 5,
+                inventory.getStockedQuantity(Barcode.EGG));
+        assertEquals("Nothing should be reserved", 0,
+                reservations.getReservedQuantity(Barcode.EGG));
+    }
+
+    @Test
+    public void releaseExpiredTest() throws FailedTransactionException, InterruptedException {
+        StockReservations expiring = new StockReservations(inventory, Duration.ofMillis(1));
+        Transaction transaction = new Transaction(ali);
+        expiring.reserve(transaction, Barcode.EGG, 4);
+        Thread.sleep(20);
+
+        assertEquals("Expired stock should be released", 4, expiring.releaseExpired());
+        assertEquals("Expired stock should return to the inventory", 5,
+                inventory.getStockedQuantity(Barcode.EGG));
+        assertEquals("Nothing should remain reserved", 0,
+                expiring.getReservedQuantity(Barcode.EGG));
+        assertEquals("Stock should only be released once", 0, expiring.releaseExpired());
+
+        try {
+            expiring.reserve(transaction, Barcode.EGG, 1);
+            fail("An expired reservation should not accept more stock");
+        } catch (FailedTransactionException expected) {
+            assertEquals("Stock should not be taken for an expired reservation", 5,
+                    inventory.getStockedQuantity(Barcode.EGG));
+        }
+        try {
+            expiring.commit(transaction);
+            fail("An expired reservation should not be committed");
+        } catch (FailedTransactionException expected) {
+            // The transaction must be abandoned instead.
+        }
+    }
+
+    @Test
+    public void abandonTest() throws FailedTransactionException {
+        farm.startTransaction(new Transaction(ali));
+        assertEquals("Incorrect number added", 3, farm.addToCart(Barcode.EGG, 3));
+        assertEquals("Incorrect reserved quantity", 3, farm.getReservedQuantity(Barcode.EGG));
+
+        farm.abandonTransaction();
+        assertEquals("Abandoned stock should return to the inventory", 5,
+                inventory.getStockedQuantity(Barcode.EGG));
+        assertEquals("Nothing should remain reserved", 0, farm.getReservedQuantity(Barcode.EGG));
+        assertTrue("The cart should be emptied", ali.getCart().isEmpty());
+        assertFalse("No transaction should be ongoing",
+                farm.getTransactionManager().hasOngoingTransaction());
+    }
+
+    @Test
+    public void checkoutTest() throws FailedTransactionException {
+        farm.startTransaction(new Transaction(ali));
+        farm.addToCart(Barcode.EGG, 2);
+        farm.addToCart(Barcode.MILK);
+        assertTrue("Checkout should record the purchases", farm.checkout());
+
+        assertEquals("Sold stock should not return to the inventory", 3,
+                inventory.getStockedQuantity(Barcode.EGG));
+        assertEquals("Sold stock should not return to the inventory", 1,
+                inventory.getStockedQuantity(Barcode.MILK));
+        assertEquals("Nothing should remain reserved", 0, farm.getReservedQuantity(Barcode.EGG));
+        assertEquals("Incorrect transactions recorded", 1,
+                farm.getTransactionHistory().getTotalTransactionsMade());
+        assertEquals("Releasing expired carts should restock nothing", 0,
+                farm.releaseExpiredReservations());
+    }
+
+    @Test
+    public void sharedTransactionManagerTest() throws FailedTransactionException {
+        // A transaction started through the farm's manager is the till's ongoing transaction.
+        farm.getTransactionManager().setOngoingTransaction(new Transaction(ali));
+        assertEquals("Incorrect number added", 2, farm.addToCart(Barcode.EGG, 2));
+        assertEquals("Incorrect reserved quantity", 2, farm.getReservedQuantity(Barcode.EGG));
+        assertTrue("Checkout should record the purchases", farm.checkout());
+        assertEquals("Incorrect remaining stock", 3, inventory.getStockedQuantity(Barcode.EGG));
+    }
+
+    @Test
+    public void logFailureTest() throws FailedTransactionException, IOException {
+        TransactionLog log = new TransactionLog(folder.getRoot().toPath().resolve("sales.log"));
+        TransactionHistory history = new TransactionHistory(log);
+        Farm loggedFarm = new Farm(inventory, new AddressBook(), history,
+                Farm.DEFAULT_RESERVATION_TIMEOUT);
+        // Every write to a closed log fails.
+        log.close();
+
+        loggedFarm.startTransaction(new Transaction(ali));
+        loggedFarm.addToCart(Barcode.EGG, 2);
+        try {
+            loggedFarm.checkout();
+            fail("Checking out should fail if the sale cannot be saved");
+        } catch (FailedTransactionException expected) {
+            // The till should be ready for the next customer.
+        }
+        assertEquals("The unsaved sale's stock should be restocked", 5,
+                inventory.getStockedQuantity(Barcode.EGG));
+        assertEquals("Nothing should remain reserved", 0,
+                loggedFarm.getReservedQuantity(Barcode.EGG));
+        assertEquals("The unsaved sale should not be recorded", 0,
+                history.getTotalTransactionsMade());
+        assertFalse("No transaction should be ongoing",
+                loggedFarm.getTransactionManager().hasOngoingTransaction());
+    }
+}
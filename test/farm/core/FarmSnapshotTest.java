@@ -0,0 +1,136 @@
+package farm.core;
+
+import farm.customer.AddressBook;
+import farm.customer.Customer;
+import farm.inventory.BasicInventory;
+import farm.inventory.FancyInventory;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import farm.sales.transaction.Transaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+public class FarmSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+    private FancyInventory inventory;
+    private AddressBook addressBook;
+
+    @Before
+    public void setUp() throws InvalidStockRequestException, DuplicateCustomerException {
+        this.path = folder.getRoot().toPath().resolve("farm.snapshot");
+        this.inventory = new FancyInventory();
+        this.addressBook = new AddressBook();
+        inventory.addProduct(Barcode.EGG, Quality.GOLD, 1000000);
+        inventory.addProduct(Barcode.WOOL, Quality.REGULAR, 3);
+        addressBook.addCustomer(new Customer("Ali", 33651111, "UQ"));
+        addressBook.addCustomer(new Customer("Zoë", 33652222, "QUT"));
+    }
+
+    @Test
+    public void restoreTest() throws Exception {
+        FarmSnapshot.capture(inventory, addressBook).write(path);
+
+        FancyInventory restoredInventory = new FancyInventory();
+        AddressBook restoredAddressBook = new AddressBook();
+        FarmSnapshot.read(path).restore(restoredInventory, restoredAddressBook);
+
+        assertEquals("Incorrect stock restored", 1000000,
+                restoredInventory.getStockedQuantity(Barcode.EGG, Quality.GOLD));
+        assertEquals("Incorrect stock restored", 3,
+                restoredInventory.getStockedQuantity(Barcode.WOOL));
+        assertEquals("Incorrect stock restored", 0,
+                restoredInventory.getStockedQuantity(Barcode.MILK));
+        assertEquals("Incorrect customers restored", addressBook.getAllRecords(),
+                restoredAddressBook.getAllRecords());
+        assertEquals("Incorrect address restored", "QUT",
+                restoredAddressBook.getCustomer("Zoë", 33652222).getAddress());
+    }
+
+    @Test
+    public void restoreIntoBasicInventoryTest() throws Exception {
+        FancyInventory small = new FancyInventory();
+        small.addProduct(Barcode.JAM, Quality.SILVER, 2);
+        FarmSnapshot.capture(small, addressBook).write(path);
+
+        BasicInventory restored = new BasicInventory();
+        FarmSnapshot.read(path).restore(restored, new AddressBook());
+        assertEquals("Incorrect stock restored", 2,
+                restored.getStockedQuantity(Barcode.JAM, Quality.SILVER));
+        assertEquals("Incorrect stock restored", 2, restored.getAllProducts().size());
+        assertEquals("Restored stock should be sold one at a time", 1,
+                restored.removeProduct(Barcode.JAM).size());
+        assertEquals("Incorrect stock remaining", 1, restored.getStockedQuantity(Barcode.JAM));
+    }
+
+    @Test
+    public void reservedStockIncludedTest() throws Exception {
+        Farm farm = new Farm(inventory, addressBook);
+        farm.startTransaction(new Transaction(addressBook.getCustomer("Ali", 33651111)));
+        farm.addToCart(Barcode.WOOL, 2);
+
+        FarmSnapshot snapshot = farm.takeSnapshot();
+        assertEquals("Reserved stock should be counted as in stock", 3,
+                snapshot.getStockedQuantity(Barcode.WOOL, Quality.REGULAR));
+        assertEquals("Reserved stock should stay in the cart", 1,
+                inventory.getStockedQuantity(Barcode.WOOL));
+    }
+
+    @Test
+    public void snapshotWhileSellingTest() throws Exception {
+        BasicInventory basic = new BasicInventory();
+        for (int i = 0; i < 50; i++) {
+            basic.addProduct(Barcode.MILK, Quality.SILVER);
+        }
+        Farm farm = new Farm(basic, addressBook);
+        Customer ali = addressBook.getCustomer("Ali", 33651111);
+
+        // Take snapshots on another thread while the till fills and abandons carts.
+        Callable<Integer> snapshots = () -> {
+            for (int i = 0; i < 2000; i++) {
+                int milk = farm.takeSnapshot().getStockedQuantity(Barcode.MILK, Quality.SILVER);
+                if (milk != 50) {
+                    return milk;
+                }
+            }
+            return 50;
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> result = executor.submit(snapshots);
+            while (!result.isDone()) {
+                farm.startTransaction(new Transaction(ali));
+                farm.addToCart(Barcode.MILK);
+                farm.addToCart(Barcode.MILK);
+                farm.abandonTransaction();
+            }
+            assertEquals("Every snapshot should count all the milk", 50, (int) result.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptSnapshotTest() throws IOException {
+        FarmSnapshot.capture(inventory, addressBook).write(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        FarmSnapshot.read(path);
+    }
+}
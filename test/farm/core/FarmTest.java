@@ -0,0 +1,179 @@
+package farm.core;
+
+import farm.customer.AddressBook;
+import farm.customer.Customer;
+import farm.inventory.BasicInventory;
+import farm.inventory.FancyInventory;
+import farm.inventory.product.Egg;
+import farm.inventory.product.Milk;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import farm.sales.TransactionHistory;
+import farm.sales.TransactionLog;
+import farm.sales.transaction.Transaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FarmTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FancyInventory inventory;
+    private Farm farm;
+    private Customer ali;
+    private Customer zoe;
+
+    @Before
+    public void setUp() throws InvalidStockRequestException {
+        this.inventory = new FancyInventory();
+        inventory.addProduct(Barcode.EGG, Quality.GOLD, 2);
+        inventory.addProduct(Barcode.EGG, Quality.REGULAR, 2);
+        inventory.addProduct(Barcode.MILK, Quality.REGULAR, 1);
+        this.farm = new Farm(inventory, new AddressBook());
+        this.ali = new Customer("Ali", 33651111, "UQ");
+        this.zoe = new Customer("Zoë", 33652222, "QUT");
+    }
+
+    @Test
+    public void checkoutAllMixedQualitiesTest() throws FailedTransactionException {
+        ali.getCart().addProduct(new Egg(Quality.REGULAR));
+        ali.getCart().addProduct(new Egg(Quality.GOLD));
+        zoe.getCart().addProduct(new Egg(Quality.REGULAR));
+
+        List<CheckoutResult> results = farm.checkoutAll(
+                List.of(new Transaction(ali), new Transaction(zoe)));
+        assertEquals("Incorrect results",
+                List.of(CheckoutResult.RECORDED, CheckoutResult.RECORDED), results);
+        assertEquals("The sold qualities should be removed", 0,
+                inventory.getStockedQuantity(Barcode.EGG, Quality.REGULAR));
+        assertEquals("Unsold qualities should be kept", 1,
+                inventory.getStockedQuantity(Barcode.EGG, Quality.GOLD));
+        assertEquals("Incorrect transactions recorded", 2,
+                farm.getTransactionHistory().getTotalTransactionsMade());
+    }
+
+    @Test
+    public void checkoutAllInsufficientQualityTest() throws FailedTransactionException {
+        // Eggs are in stock, but not enough of them are regular.
+        ali.getCart().addProduct(new Egg(Quality.REGULAR));
+        ali.getCart().addProduct(new Egg(Quality.REGULAR));
+        zoe.getCart().addProduct(new Egg(Quality.REGULAR));
+        zoe.getCart().addProduct(new Milk());
+        Transaction first = new Transaction(ali);
+        Transaction second = new Transaction(zoe);
+
+        List<CheckoutResult> results = farm.checkoutAll(List.of(first, second));
+        assertEquals("Incorrect results",
+                List.of(CheckoutResult.RECORDED, CheckoutResult.INSUFFICIENT_STOCK), results);
+        assertTrue("The accepted transaction should be finalised", first.isFinalised());
+        assertFalse("The refused transaction should stay active", second.isFinalised());
+        assertEquals("The refused cart should be kept", 2, zoe.getCart().getContents().size());
+        assertEquals("Stock for the refused transaction should be kept", 1,
+                inventory.getStockedQuantity(Barcode.MILK));
+        assertEquals("Gold eggs should not be sold in place of regular ones", 2,
+                inventory.getStockedQuantity(Barcode.EGG, Quality.GOLD));
+    }
+
+    @Test
+    public void checkoutAllDuplicateCustomerTest() throws FailedTransactionException {
+        ali.getCart().addProduct(new Egg(Quality.GOLD));
+        Transaction first = new Transaction(ali);
+        Transaction second = new Transaction(ali);
+        try {
+            farm.checkoutAll(List.of(first, second));
+            fail("A batch with the same customer twice should be refused");
+        } catch (IllegalArgumentException expected) {
+            // Nothing should have been checked out.
+        }
+        assertFalse("No transaction should be finalised", first.isFinalised());
+        assertFalse("No transaction should be finalised", second.isFinalised());
+        assertEquals("No stock should be removed", 2,
+                inventory.getStockedQuantity(Barcode.EGG, Quality.GOLD));
+        assertEquals("No transaction should be recorded", 0,
+                farm.getTransactionHistory().getTotalTransactionsMade());
+    }
+
+    @Test
+    public void checkoutAllRollbackTest() throws FailedTransactionException {
+        // An inventory whose counts claim more milk than it can give up,
+        // as if another lane sold it during the batch.
+        FancyInventory changing = new FancyInventory() {
+            @Override
+            public int getStockedQuantity(Barcode barcode, Quality quality) {
+                int stocked = super.getStockedQuantity(barcode, quality);
+                return barcode == Barcode.MILK ? stocked + 1 : stocked;
+            }
+        };
+        changing.addProduct(Barcode.EGG, Quality.SILVER);
+        Farm changingFarm = new Farm(changing, new AddressBook());
+        ali.getCart().addProduct(new Egg(Quality.SILVER));
+        zoe.getCart().addProduct(new Milk());
+        Transaction first = new Transaction(ali);
+        Transaction second = new Transaction(zoe);
+
+        try {
+            changingFarm.checkoutAll(List.of(first, second));
+            fail("A batch should fail if the stock it needs is gone");
+        } catch (FailedTransactionException expected) {
+            // The removed stock should have been put back.
+        }
+        assertEquals("Removed stock should be restocked", 1,
+                changing.getStockedQuantity(Barcode.EGG, Quality.SILVER));
+        assertFalse("No transaction should be finalised", first.isFinalised());
+        assertFalse("No transaction should be finalised", second.isFinalised());
+        assertEquals("No transaction should be recorded", 0,
+                changingFarm.getTransactionHistory().getTotalTransactionsMade());
+    }
+
+    @Test
+    public void checkoutAllBasicInventoryTest() throws FailedTransactionException {
+        BasicInventory basic = new BasicInventory();
+        basic.addProduct(Barcode.EGG, Quality.REGULAR);
+        basic.addProduct(Barcode.EGG, Quality.GOLD);
+        basic.addProduct(Barcode.EGG, Quality.REGULAR);
+        Farm basicFarm = new Farm(basic, new AddressBook());
+        ali.getCart().addProduct(new Egg(Quality.REGULAR));
+        ali.getCart().addProduct(new Egg(Quality.REGULAR));
+
+        assertEquals("Incorrect results", List.of(CheckoutResult.RECORDED),
+                basicFarm.checkoutAll(List.of(new Transaction(ali))));
+        assertEquals("Only the gold egg should remain", 1, basic.getStockedQuantity(Barcode.EGG));
+        assertEquals("Only the gold egg should remain", 1,
+                basic.getStockedQuantity(Barcode.EGG, Quality.GOLD));
+    }
+
+    @Test
+    public void checkoutAllLogFailureTest() throws FailedTransactionException, IOException {
+        TransactionLog log = new TransactionLog(folder.getRoot().toPath().resolve("sales.log"));
+        TransactionHistory history = new TransactionHistory(log);
+        Farm loggedFarm = new Farm(inventory, new AddressBook(), history,
+                Farm.DEFAULT_RESERVATION_TIMEOUT);
+        // Every write to a closed log fails.
+        log.close();
+        ali.getCart().addProduct(new Egg(Quality.GOLD));
+        zoe.getCart().addProduct(new Milk());
+
+        try {
+            loggedFarm.checkoutAll(List.of(new Transaction(ali), new Transaction(zoe)));
+            fail("Checking out should fail if the sales cannot be saved");
+        } catch (FailedTransactionException expected) {
+            // The unsaved sales' stock should be back in the inventory.
+        }
+        assertEquals("Unsaved stock should be restocked", 2,
+                inventory.getStockedQuantity(Barcode.EGG, Quality.GOLD));
+        assertEquals("Unsaved stock should be restocked", 1,
+                inventory.getStockedQuantity(Barcode.MILK));
+        assertEquals("The unsaved sales should not be recorded", 0,
+                history.getTotalTransactionsMade());
+    }
+}
@@ -0,0 +1,84 @@
+package farm.core;
+
+import farm.customer.Customer;
+import farm.inventory.product.Egg;
+import farm.sales.transaction.Transaction;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReceiptPipelineTest {
+
+    private static List<Transaction> checkOut(int count) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Customer customer = new Customer("Customer " + i, 33650000 + i, "UQ");
+            Transaction transaction = new Transaction(customer);
+            customer.getCart().addProduct(new Egg());
+            transaction.finalise();
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    @Test
+    public void printsInOrderAndDrainsOnCloseTest() throws InterruptedException {
+        List<String> printed = Collections.synchronizedList(new ArrayList<>());
+        List<Transaction> transactions = checkOut(20);
+        ReceiptPipeline pipeline = new ReceiptPipeline(receipt -> {
+            try {
+                // A slow output, so the queue fills up.
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            printed.add(receipt);
+        }, 4);
+        for (Transaction transaction : transactions) {
+            pipeline.submit(transaction);
+        }
+        pipeline.close();
+
+        assertEquals("Every receipt should be printed", 20, printed.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            assertEquals("Receipts should be printed in order",
+                    transactions.get(i).getReceipt(), printed.get(i));
+        }
+        assertEquals("Incorrect printed count", 20, pipeline.getReceiptsPrinted());
+        assertEquals("Queue should be empty", 0, pipeline.getQueueDepth());
+        assertTrue("Queue should never exceed its capacity",
+                pipeline.getPeakQueueDepth() <= pipeline.getCapacity());
+    }
+
+    @Test
+    public void failedReceiptDoesNotStopPipelineTest() throws InterruptedException {
+        List<String> printed = Collections.synchronizedList(new ArrayList<>());
+        List<Transaction> transactions = checkOut(3);
+        ReceiptPipeline pipeline = new ReceiptPipeline(receipt -> {
+            if (receipt.contains("Customer 1!")) {
+                throw new IllegalStateException("Printer jammed");
+            }
+            printed.add(receipt);
+        }, 2);
+        for (Transaction transaction : transactions) {
+            pipeline.submit(transaction);
+        }
+        pipeline.close();
+
+        assertEquals("Other receipts should still be printed", 2, printed.size());
+        assertNotNull("Failure should be recorded", pipeline.getLastFailure());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void submitAfterCloseTest() throws InterruptedException {
+        ReceiptPipeline pipeline = new ReceiptPipeline(receipt -> { }, 1);
+        pipeline.close();
+        pipeline.submit(checkOut(1).getFirst());
+    }
+}
@@ -0,0 +1,53 @@
+package farm.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShopFrontTest {
+
+    @Test
+    public void splitMatchesStringSplitTest() {
+        for (String command : new String[] {"", "add", "add egg 3", "add  egg", "add egg   ",
+                " add", "   ", "a b c d e f"}) {
+            assertArrayEquals("Incorrect split of \"" + command + "\"", command.split(" "),
+                    ShopFront.splitArguments(command));
+        }
+    }
+
+    @Test
+    public void bufferedModeTest() {
+        ByteArrayInputStream in = new ByteArrayInputStream(
+                "nonsense\r\nADD Egg 3\nAli\n".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ShopFront shop = new ShopFront(in, out, StandardCharsets.UTF_8);
+
+        assertEquals("Incorrect command", List.of("add", "egg", "3"), shop.promptInventoryCmd());
+        assertTrue("Prompts should be written before reading input",
+                out.toString(StandardCharsets.UTF_8).endsWith(
+                        "INVENTORY: Please enter command (h to see options): "));
+
+        shop.displayMessage("Hello");
+        assertFalse("Messages should be held until the next prompt",
+                out.toString(StandardCharsets.UTF_8).contains("Hello"));
+        assertEquals("Incorrect name", "Ali", shop.promptForCustomerName());
+        assertTrue("Messages should be written at the next prompt",
+                out.toString(StandardCharsets.UTF_8).contains("Hello" + System.lineSeparator()));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void endOfInputTest() {
+        ShopFront shop = new ShopFront(new ByteArrayInputStream(new byte[0]),
+                new ByteArrayOutputStream(), StandardCharsets.UTF_8);
+        shop.promptForCustomerAddress();
+    }
+}
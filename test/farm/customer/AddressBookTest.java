@@ -0,0 +1,137 @@
+package farm.customer;
+
+import farm.core.CustomerNotFoundException;
+import farm.core.DuplicateCustomerException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AddressBookTest {
+    private AddressBook addressBook;
+    private Customer ali;
+    private Customer bob;
+
+    @Before
+    public void setUp() throws DuplicateCustomerException {
+        this.addressBook = new AddressBook();
+        this.ali = new Customer("Ali", 33651111, "UQ");
+        this.bob = new Customer("Bob", 33652222, "QUT");
+        addressBook.addCustomer(ali);
+        addressBook.addCustomer(bob);
+    }
+
+    @Test
+    public void getCustomerTest() throws CustomerNotFoundException {
+        assertSame("Incorrect customer returned", ali, addressBook.getCustomer("Ali", 33651111));
+        assertSame("Incorrect customer returned", bob, addressBook.getCustomer("Bob", 33652222));
+    }
+
+    @Test(expected = CustomerNotFoundException.class)
+    public void getCustomerWrongNumberTest() throws CustomerNotFoundException {
+        addressBook.getCustomer("Ali", 33652222);
+    }
+
+    @Test
+    public void containsCustomerTest() {
+        assertTrue("Customer should be found",
+                addressBook.containsCustomer(new Customer("Ali", 33651111, "Elsewhere")));
+        assertFalse("Customer should not be found",
+                addressBook.containsCustomer(new Customer("Ali", 12345678, "UQ")));
+    }
+
+    @Test(expected = DuplicateCustomerException.class)
+    public void addDuplicateCustomerTest() throws DuplicateCustomerException {
+        addressBook.addCustomer(new Customer("Bob", 33652222, "Elsewhere"));
+    }
+
+    @Test
+    public void getCustomerAfterRenameTest() throws CustomerNotFoundException {
+        ali.setName("Alexandra");
+        ali.setPhoneNumber(12345678);
+        assertSame("Renamed customer not found", ali,
+                addressBook.getCustomer("Alexandra", 12345678));
+        assertFalse("Old details should no longer match",
+                addressBook.containsCustomer(new Customer("Ali", 33651111, "UQ")));
+    }
+
+    @Test
+    public void renameToExistingCustomerTest() throws CustomerNotFoundException {
+        ali.setName("Bob");
+        try {
+            ali.setPhoneNumber(33652222);
+            fail("Customer should not take the details of an existing customer");
+        } catch (IllegalArgumentException e) {
+            // Expected, as Bob already has these details.
+        }
+        assertSame("Existing customer replaced", bob, addressBook.getCustomer("Bob", 33652222));
+        assertSame("Rejected customer not restored", ali, addressBook.getCustomer("Bob", 33651111));
+    }
+
+    @Test
+    public void addDuringRenameTest() throws CustomerNotFoundException {
+        // Another listener sees the change while the address book is still part way through it.
+        ali.addKeyListener(new CustomerKeyListener() {
+            @Override
+            public void beforeKeyChange(Customer customer, String newName, int newPhoneNumber) {
+                try {
+                    addressBook.addCustomer(new Customer(newName, newPhoneNumber, "Elsewhere"));
+                    fail("Customer added with the details being taken by a rename");
+                } catch (DuplicateCustomerException e) {
+                    // Expected, as the renamed customer has claimed these details.
+                }
+            }
+
+            @Override
+            public void afterKeyChange(Customer customer) {
+            }
+        });
+        ali.setName("Alexandra");
+        assertSame("Renamed customer not found", ali,
+                addressBook.getCustomer("Alexandra", 33651111));
+    }
+
+    @Test
+    public void rejectedRenameTest() throws CustomerNotFoundException,
+            DuplicateCustomerException {
+        ali.addKeyListener(new CustomerKeyListener() {
+            @Override
+            public void beforeKeyChange(Customer customer, String newName, int newPhoneNumber) {
+                throw new IllegalArgumentException("Rejected");
+            }
+
+            @Override
+            public void afterKeyChange(Customer customer) {
+            }
+        });
+        try {
+            ali.setName("Alexandra");
+            fail("Rename should have been rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected, as the second listener rejects every change.
+        }
+        assertSame("Rejected customer not restored", ali,
+                addressBook.getCustomer("Ali", 33651111));
+        assertFalse("Rejected details should be released",
+                addressBook.containsCustomer(new Customer("Alexandra", 33651111, "UQ")));
+        addressBook.addCustomer(new Customer("Alexandra", 33651111, "UQ"));
+    }
+
+    @Test
+    public void getAllRecordsOrderTest() {
+        assertEquals("Records not in insertion order", List.of(ali, bob),
+                addressBook.getAllRecords());
+    }
+
+    @After
+    public void tearDown() {
+        this.addressBook = null;
+    }
+}
@@ -0,0 +1,147 @@
+package farm.inventory;
+
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentInventoryTest {
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 20000;
+
+    @Test
+    public void atomicConservesStockTest() throws Exception {
+        conservesStock(new AtomicInventory());
+    }
+
+    @Test
+    public void stripedConservesStockTest() throws Exception {
+        conservesStock(new StripedInventory());
+    }
+
+    @Test
+    public void atomicNeverOversellsTest() throws Exception {
+        neverOversells(new AtomicInventory());
+    }
+
+    @Test
+    public void stripedNeverOversellsTest() throws Exception {
+        neverOversells(new StripedInventory());
+    }
+
+    /**
+     * Adds and removes stock from several threads at once, and checks that the stock left is
+     * exactly what was added less what was removed.
+     * @param inventory The empty inventory to test.
+     */
+    private static void conservesStock(Inventory inventory) throws Exception {
+        for (Barcode barcode : Barcode.values()) {
+            inventory.addProduct(barcode, Quality.REGULAR, 100);
+        }
+        List<Callable<long[]>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < THREADS; lane++) {
+            int offset = lane;
+            lanes.add(() -> {
+                // The number added and removed of each barcode by this lane.
+                long[] added = new long[Barcode.values().length];
+                long[] removed = new long[Barcode.values().length];
+                for (int round = 0; round < ROUNDS; round++) {
+                    Barcode barcode = Barcode.values()[(round + offset) % Barcode.values().length];
+                    Quality quality = Quality.values()[round % Quality.values().length];
+                    if (round % 3 == 0) {
+                        inventory.addProduct(barcode, quality, 2);
+                        added[barcode.ordinal()] += 2;
+                    } else {
+                        inventory.addProduct(barcode, quality);
+                        added[barcode.ordinal()]++;
+                    }
+                    removed[barcode.ordinal()] += inventory.removeProduct(barcode, 2).size();
+                }
+                long[] net = new long[Barcode.values().length];
+                for (int i = 0; i < net.length; i++) {
+                    net[i] = added[i] - removed[i];
+                }
+                return net;
+            });
+        }
+
+        long[] expected = new long[Barcode.values().length];
+        for (long[] net : runAll(lanes)) {
+            for (int i = 0; i < net.length; i++) {
+                expected[i] += net[i];
+            }
+        }
+        int total = 0;
+        for (Barcode barcode : Barcode.values()) {
+            int stocked = inventory.getStockedQuantity(barcode);
+            assertEquals("Stock of " + barcode + " was not conserved",
+                    100 + expected[barcode.ordinal()], stocked);
+            int byQuality = 0;
+            for (Quality quality : Quality.values()) {
+                int count = inventory.getStockedQuantity(barcode, quality);
+                assertTrue("Stock should never be negative", count >= 0);
+                byQuality += count;
+            }
+            assertEquals("Quality counts should add up to the stock", stocked, byQuality);
+            total += stocked;
+        }
+        assertEquals("Incorrect number of products", total, inventory.getAllProducts().size());
+    }
+
+    /**
+     * Sells a fixed stock from several threads at once, and checks that every unit
+     * is sold exactly once.
+     * @param inventory The empty inventory to test.
+     */
+    private static void neverOversells(Inventory inventory) throws Exception {
+        int stock = THREADS * ROUNDS / 2;
+        inventory.addProduct(Barcode.MILK, Quality.SILVER, stock / 2);
+        inventory.addProduct(Barcode.MILK, Quality.GOLD, stock - stock / 2);
+        List<Callable<long[]>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < THREADS; lane++) {
+            lanes.add(() -> {
+                long sold = 0;
+                for (int round = 0; round < ROUNDS; round++) {
+                    sold += inventory.removeProduct(Barcode.MILK).size();
+                }
+                return new long[] {sold};
+            });
+        }
+
+        long sold = 0;
+        for (long[] result : runAll(lanes)) {
+            sold += result[0];
+        }
+        assertEquals("Every unit should be sold exactly once", stock, sold);
+        assertEquals("No stock should remain", 0, inventory.getStockedQuantity(Barcode.MILK));
+    }
+
+    /**
+     * Runs every task on its own thread and waits for them all to finish.
+     * @param tasks The tasks to run.
+     * @return The result of each task, in the same order as the tasks.
+     */
+    private static List<long[]> runAll(List<Callable<long[]>> tasks)
+            throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            List<long[]> results = new ArrayList<>();
+            for (Future<long[]> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
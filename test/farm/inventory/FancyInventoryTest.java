@@ -0,0 +1,90 @@
+package farm.inventory;
+
+import farm.core.FailedTransactionException;
+import farm.core.InvalidStockRequestException;
+import farm.inventory.product.Product;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FancyInventoryTest {
+    private FancyInventory inventory;
+
+    @Before
+    public void setUp() {
+        this.inventory = new FancyInventory();
+    }
+
+    @Test
+    public void addQuantityTest() throws InvalidStockRequestException {
+        inventory.addProduct(Barcode.EGG, Quality.GOLD, 3);
+        inventory.addProduct(Barcode.EGG, Quality.REGULAR);
+        assertEquals("Incorrect stocked quantity", 4, inventory.getStockedQuantity(Barcode.EGG));
+        assertEquals("Incorrect gold quantity", 3,
+                inventory.getStockedQuantity(Barcode.EGG, Quality.GOLD));
+        assertEquals("Incorrect number of products", 4, inventory.getAllProducts().size());
+    }
+
+    @Test
+    public void addNonPositiveQuantityTest() throws InvalidStockRequestException {
+        inventory.addProduct(Barcode.MILK, Quality.SILVER, 2);
+        inventory.addProduct(Barcode.MILK, Quality.SILVER, 0);
+        inventory.addProduct(Barcode.MILK, Quality.SILVER, -5);
+        assertEquals("Non-positive quantities should add nothing", 2,
+                inventory.getStockedQuantity(Barcode.MILK));
+        assertEquals("Non-positive quantities should add nothing", 2,
+                inventory.getAllProducts().size());
+
+        inventory.addProduct(Barcode.JAM, Quality.GOLD, -3);
+        assertFalse("No jam should be in stock", inventory.existsProduct(Barcode.JAM));
+        assertEquals("Incorrect number of products", 2, inventory.getAllProducts().size());
+    }
+
+    @Test
+    public void productOrderTest() throws InvalidStockRequestException {
+        inventory.addProduct(Barcode.MILK, Quality.GOLD);
+        inventory.addProduct(Barcode.EGG, Quality.IRIDIUM);
+        inventory.addProduct(Barcode.MILK, Quality.REGULAR, 2);
+        inventory.addProduct(Barcode.EGG, Quality.SILVER);
+
+        List<Product> products = inventory.getAllProducts();
+        assertEquals("Incorrect number of products", 5, products.size());
+        String[] expected = {"EGG SILVER", "EGG IRIDIUM", "MILK REGULAR", "MILK REGULAR",
+                "MILK GOLD"};
+        for (int i = 0; i < expected.length; i++) {
+            Product product = products.get(i);
+            assertEquals("Products should be ordered by barcode, then by quality", expected[i],
+                    product.getBarcode() + " " + product.getQuality());
+        }
+        assertEquals("Stream should match the list", products,
+                inventory.streamProducts().toList());
+    }
+
+    @Test
+    public void removeHighestQualityFirstTest() throws InvalidStockRequestException,
+            FailedTransactionException {
+        inventory.addProduct(Barcode.WOOL, Quality.REGULAR, 2);
+        inventory.addProduct(Barcode.WOOL, Quality.IRIDIUM);
+        inventory.addProduct(Barcode.WOOL, Quality.SILVER);
+
+        List<Product> removed = inventory.removeProduct(Barcode.WOOL, 3);
+        assertEquals("Incorrect number removed", 3, removed.size());
+        assertEquals("Highest quality should be removed first", Quality.IRIDIUM,
+                removed.get(0).getQuality());
+        assertEquals("Incorrect quality removed", Quality.SILVER, removed.get(1).getQuality());
+        assertEquals("Incorrect quality removed", Quality.REGULAR, removed.get(2).getQuality());
+        assertEquals("Incorrect remaining quantity", 1,
+                inventory.getStockedQuantity(Barcode.WOOL, Quality.REGULAR));
+
+        assertEquals("Only the remaining stock should be removed", 1,
+                inventory.removeProduct(Barcode.WOOL, 5).size());
+        assertTrue("No wool should remain", inventory.removeProduct(Barcode.WOOL).isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+package farm.sales;
+
+import farm.customer.Customer;
+import farm.inventory.product.Egg;
+import farm.inventory.product.Jam;
+import farm.inventory.product.Milk;
+import farm.inventory.product.data.Barcode;
+import farm.sales.transaction.SpecialSaleTransaction;
+import farm.sales.transaction.Transaction;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReceiptWriterTest {
+
+    @Test
+    public void priceFormatTest() throws IOException {
+        for (int cents : new int[] {0, 5, 50, 99, 100, 440, 1347, 100000, -7, -1234,
+                Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            StringBuilder price = new StringBuilder();
+            ReceiptWriter.appendPrice(price, cents);
+            String expected = "$" + String.format(Locale.ROOT, "%.2f", cents / 100.0);
+            assertEquals("Incorrect price", expected, price.toString());
+            assertEquals("Incorrect price length", expected.length(),
+                    ReceiptWriter.priceLength(cents));
+        }
+    }
+
+    @Test
+    public void matchesPrinterTest() {
+        Customer ali = new Customer("Ali", 33651111, "UQ");
+        Transaction transaction = new SpecialSaleTransaction(ali, Map.of(Barcode.MILK, 15));
+        ali.getCart().addProduct(new Milk());
+        ali.getCart().addProduct(new Egg());
+        ali.getCart().addProduct(new Jam());
+        transaction.finalise();
+
+        String expected = ReceiptPrinter.createReceipt(
+                List.of("Item", "Qty", "Price (ea.)", "Subtotal"),
+                List.of(List.of("egg", "1", "$0.50", "$0.50"),
+                        List.of("milk", "1", "$4.40", "$3.74", "Discount applied! 15% off milk"),
+                        List.of("jam", "1", "$6.70", "$6.70")),
+                "$10.94", "Ali", "$0.66");
+        assertEquals("Incorrect receipt", expected, transaction.getReceipt());
+    }
+
+    @Test
+    public void reusedWriterTest() throws IOException {
+        Customer ali = new Customer("Ali", 33651111, "UQ");
+        Transaction first = new Transaction(ali);
+        ali.getCart().addProduct(new Egg());
+        first.finalise();
+        Transaction second = new Transaction(ali);
+
+        StringBuilder receipts = new StringBuilder();
+        ReceiptWriter writer = new ReceiptWriter(receipts);
+        first.writeReceipt(writer);
+        second.writeReceipt(writer);
+        first.writeReceipt(writer);
+        assertEquals("Incorrect receipts",
+                first.getReceipt() + second.getReceipt() + first.getReceipt(), receipts.toString());
+    }
+
+    @Test
+    public void templateTest() throws IOException {
+        ReceiptTemplate narrow = ReceiptTemplate.of("Farm", "Here", "o_o", 20);
+        assertSame("Template should be cached", narrow,
+                ReceiptTemplate.of("Farm", "Here", "o_o", 20));
+        assertEquals("Incorrect divider", "-".repeat(20) + "\n", narrow.getSingleDivider());
+
+        Customer ali = new Customer("Ali", 33651111, "UQ");
+        Transaction transaction = new Transaction(ali);
+        ali.getCart().addProduct(new Egg());
+        transaction.finalise();
+        StringBuilder receipt = new StringBuilder();
+        transaction.writeReceipt(new ReceiptWriter(receipt, narrow));
+        assertTrue("Receipt should start with the template's header",
+                receipt.toString().startsWith(narrow.getHeader()));
+        assertTrue("Receipt should use the template's width",
+                receipt.toString().contains("egg" + " ".repeat(12) + "$0.50\n"));
+    }
+}
@@ -0,0 +1,108 @@
+package farm.sales;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SpaceSavingTest {
+    private SpaceSaving<String> sketch;
+
+    @Before
+    public void setUp() {
+        this.sketch = new SpaceSaving<>(3);
+    }
+
+    @Test
+    public void exactWhileUnderCapacityTest() {
+        sketch.add("a", 5);
+        sketch.add("b", 9);
+        sketch.add("a", 6);
+        assertEquals("Incorrect estimate", 11, sketch.getEstimate("a"));
+        assertEquals("Estimate should be exact", 0, sketch.getError("a"));
+        assertEquals("Incorrect ranking", List.of("a", "b"), sketch.getTop(5));
+    }
+
+    @Test
+    public void replacesLowestTest() {
+        sketch.add("a", 10);
+        sketch.add("b", 2);
+        sketch.add("c", 7);
+        assertEquals("Lowest key should be replaced", "b", sketch.add("d", 1));
+        assertEquals("Incorrect estimate", 3, sketch.getEstimate("d"));
+        assertEquals("Incorrect error", 2, sketch.getError("d"));
+        assertEquals("Replaced key should not be tracked", 0, sketch.getEstimate("b"));
+        assertNull("Tracked key should not replace another", sketch.add("a", 1));
+    }
+
+    @Test
+    public void heavyHittersTrackedTest() {
+        // Keys with more than a third of the weight must survive a stream of distinct keys.
+        SpaceSaving<Integer> numbers = new SpaceSaving<>(3);
+        for (int i = 0; i < 1000; i++) {
+            numbers.add(-1, 1);
+            numbers.add(i, 1);
+        }
+        assertTrue("Heavy hitter should be tracked", numbers.getEstimate(-1) >= 1000);
+        assertEquals("Heavy hitter should rank first", Integer.valueOf(-1), numbers.getTop(1).get(0));
+    }
+
+    @Test
+    public void rekeyEqualInstanceTest() {
+        SpaceSaving<Name> names = new SpaceSaving<>(3);
+        names.add(new Name("a"), 4);
+        Name renamed = new Name("a");
+        names.add(renamed, 3);
+
+        // Rename an instance equal to, but not the same as, the one first added.
+        names.beginRekey(renamed);
+        renamed.value = "b";
+        names.endRekey(renamed);
+        assertEquals("Count should follow the renamed key", 7, names.getEstimate(new Name("b")));
+        assertEquals("Old key should not be tracked", 0, names.getEstimate(new Name("a")));
+        assertSame("Renamed instance should be the tracked key", renamed, names.getTop(1).get(0));
+    }
+
+    @Test
+    public void replacedWhileRekeyingTest() {
+        SpaceSaving<Name> names = new SpaceSaving<>(1);
+        Name renamed = new Name("a");
+        names.add(renamed, 4);
+
+        // Another key takes over the counter while the tracked key is being renamed.
+        names.beginRekey(renamed);
+        assertSame("Key being renamed should be replaced", renamed, names.add(new Name("c"), 1));
+        renamed.value = "b";
+        names.endRekey(renamed);
+        assertEquals("New key should keep the counter", 5, names.getEstimate(new Name("c")));
+        assertEquals("Replaced key should not be tracked", 0, names.getEstimate(new Name("b")));
+        assertEquals("Replaced key should not be tracked", 0, names.getEstimate(new Name("a")));
+        assertEquals("Only the new key should be tracked", List.of(new Name("c")), names.getTop(5));
+    }
+
+    /**
+     * A key whose equality changes when it is renamed.
+     */
+    private static class Name {
+        private String value;
+
+        private Name(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Name name && name.value.equals(this.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.value.hashCode();
+        }
+    }
+}
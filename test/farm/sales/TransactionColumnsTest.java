@@ -0,0 +1,178 @@
+package farm.sales;
+
+import farm.customer.Customer;
+import farm.inventory.product.Egg;
+import farm.inventory.product.Jam;
+import farm.inventory.product.Milk;
+import farm.inventory.product.Wool;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import farm.sales.transaction.CategorisedTransaction;
+import farm.sales.transaction.SpecialSaleTransaction;
+import farm.sales.transaction.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class TransactionColumnsTest {
+    private TransactionColumns columns;
+    private TransactionHistory history;
+    private TransactionHistory columnarHistory;
+
+    @Before
+    public void setUp() {
+        this.columns = new TransactionColumns();
+        this.history = new TransactionHistory();
+        this.columnarHistory = new TransactionHistory(columns);
+
+        Customer ali = new Customer("Ali", 33651111, "UQ");
+        for (int i = 0; i < 40; i++) {
+            Transaction transaction = switch (i % 3) {
+                case 0 -> new Transaction(ali);
+                case 1 -> new CategorisedTransaction(ali);
+                default -> new SpecialSaleTransaction(ali, Map.of(Barcode.MILK, 15, Barcode.JAM, i));
+            };
+            for (int j = 0; j <= i % 5; j++) {
+                ali.getCart().addProduct(new Egg(Quality.values()[j % 4]));
+                ali.getCart().addProduct(new Milk());
+            }
+            if (i % 4 == 0) {
+                ali.getCart().addProduct(new Jam(Quality.GOLD));
+                ali.getCart().addProduct(new Wool());
+            }
+            transaction.finalise();
+            history.recordTransaction(transaction);
+            columnarHistory.recordTransaction(transaction);
+        }
+    }
+
+    @Test
+    public void aggregatesMatchHistoryTest() {
+        int size = columns.size();
+        assertEquals("Incorrect gross earnings", history.getGrossEarnings(),
+                columns.getGrossEarnings(0, size));
+        assertEquals("Incorrect products sold", history.getTotalProductsSold(),
+                columns.getTotalProductsSold(0, size));
+        for (Barcode barcode : Barcode.values()) {
+            assertEquals("Incorrect gross earnings for " + barcode,
+                    history.getGrossEarnings(barcode), columns.getGrossEarnings(barcode, 0, size));
+            assertEquals("Incorrect products sold for " + barcode,
+                    history.getTotalProductsSold(barcode),
+                    columns.getTotalProductsSold(barcode, 0, size));
+        }
+        assertEquals("Incorrect most popular product", history.getMostPopularProduct(),
+                columns.getMostPopularProduct(0, size));
+    }
+
+    @Test
+    public void columnarHistoryMatchesTest() {
+        assertEquals("Incorrect number of transactions", history.getTotalTransactionsMade(),
+                columnarHistory.getTotalTransactionsMade());
+        assertEquals("Incorrect average spend", history.getAverageSpendPerVisit(),
+                columnarHistory.getAverageSpendPerVisit(), 0.0);
+        assertEquals("Incorrect receipt", history.getLastTransaction().getReceipt(),
+                columnarHistory.getLastTransaction().getReceipt());
+        assertEquals("Incorrect receipt", history.getHighestGrossingTransaction().getReceipt(),
+                columnarHistory.getHighestGrossingTransaction().getReceipt());
+    }
+
+    @Test
+    public void rangeTest() {
+        assertEquals("Incorrect products sold", 4, columns.getTotalProductsSold(1, 2));
+        assertEquals("Empty range should sell nothing", 0, columns.getGrossEarnings(5, 5));
+        assertEquals("Empty range should have no popular product", null,
+                columns.getMostPopularProduct(5, 5));
+    }
+
+    @Test
+    public void parallelScanMatchesSequentialTest() {
+        TransactionColumns large = new TransactionColumns();
+        Customer bob = new Customer("Bob", 33652222, "QUT");
+        for (int i = 0; i < TransactionColumns.PARALLEL_THRESHOLD + 1000; i++) {
+            Transaction transaction = i % 2 == 0
+                    ? new SpecialSaleTransaction(bob, Map.of(Barcode.MILK, 33))
+                    : new Transaction(bob);
+            // Sell as many eggs as milk, so the most popular product is a tie.
+            bob.getCart().addProduct(i % 2 == 0 ? new Egg() : new Milk());
+            if (i == 70000) {
+                bob.getCart().addProduct(new Wool());
+            }
+            transaction.finalise();
+            large.add(transaction);
+        }
+
+        // Sum the results of ranges too small to be scanned in parallel.
+        long earnings = 0;
+        long milkEarnings = 0;
+        int highest = -1;
+        int step = TransactionColumns.PARALLEL_THRESHOLD / 4;
+        for (int from = 0; from < large.size(); from += step) {
+            int to = Math.min(from + step, large.size());
+            earnings += large.getGrossEarnings(from, to);
+            milkEarnings += large.getGrossEarnings(Barcode.MILK, from, to);
+            int rangeHighest = large.getHighestGrossingTransaction(from, to);
+            if (highest < 0 || large.getTotal(rangeHighest) > large.getTotal(highest)) {
+                highest = rangeHighest;
+            }
+        }
+
+        assertEquals("Incorrect gross earnings", earnings,
+                large.getGrossEarnings(0, large.size()));
+        assertEquals("Incorrect gross earnings for milk", milkEarnings,
+                large.getGrossEarnings(Barcode.MILK, 0, large.size()));
+        assertEquals("Incorrect highest grossing transaction", highest,
+                large.getHighestGrossingTransaction(0, large.size()));
+        assertEquals("Tie should go to the first barcode", Barcode.EGG,
+                large.getMostPopularProduct(0, large.size()));
+    }
+
+    @Test
+    public void parallelHistoryMatchesSequentialTest() {
+        TransactionHistory sequential = new TransactionHistory();
+        TransactionHistory parallel = new TransactionHistory(new TransactionColumns());
+        Customer bob = new Customer("Bob", 33652222, "QUT");
+        for (int i = 0; i < TransactionColumns.PARALLEL_THRESHOLD + 1000; i++) {
+            Transaction transaction = i % 3 == 0
+                    ? new SpecialSaleTransaction(bob, Map.of(Barcode.WOOL, 20))
+                    : new Transaction(bob);
+            // Sell as much wool as milk, so the most popular product is a tie that
+            // is not won by the first barcode.
+            bob.getCart().addProduct(i % 2 == 0 ? new Milk() : new Wool());
+            if (i % 1000 == 0) {
+                bob.getCart().addProduct(new Egg());
+            }
+            transaction.finalise();
+            sequential.recordTransaction(transaction);
+            parallel.recordTransaction(transaction);
+        }
+
+        assertEquals("Incorrect gross earnings", sequential.getGrossEarnings(),
+                parallel.getGrossEarnings());
+        assertEquals("Incorrect products sold", sequential.getTotalProductsSold(),
+                parallel.getTotalProductsSold());
+        for (Barcode barcode : Barcode.values()) {
+            assertEquals("Incorrect gross earnings for " + barcode,
+                    sequential.getGrossEarnings(barcode), parallel.getGrossEarnings(barcode));
+            assertEquals("Incorrect products sold for " + barcode,
+                    sequential.getTotalProductsSold(barcode),
+                    parallel.getTotalProductsSold(barcode));
+        }
+        assertEquals("Tie should go to the barcode declared first", Barcode.MILK,
+                parallel.getMostPopularProduct());
+        assertEquals("Incorrect most popular product", sequential.getMostPopularProduct(),
+                parallel.getMostPopularProduct());
+        assertEquals("Incorrect ranking of products", sequential.getMostPopularProducts(3),
+                parallel.getMostPopularProducts(3));
+        assertEquals("Incorrect highest grossing transaction",
+                sequential.getHighestGrossingTransaction().getReceipt(),
+                parallel.getHighestGrossingTransaction().getReceipt());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rangeOutOfBoundsTest() {
+        columns.getGrossEarnings(0, columns.size() + 1);
+    }
+}
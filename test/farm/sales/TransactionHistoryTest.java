@@ -0,0 +1,156 @@
+package farm.sales;
+
+import farm.customer.Customer;
+import farm.inventory.product.Egg;
+import farm.inventory.product.Milk;
+import farm.inventory.product.Wool;
+import farm.inventory.product.data.Barcode;
+import farm.sales.transaction.SpecialSaleTransaction;
+import farm.sales.transaction.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TransactionHistoryTest {
+    private static final Instant MIDNIGHT = Instant.parse("2024-05-01T00:00:00Z");
+
+    private TransactionHistory history;
+    private TransactionHistory columnarHistory;
+
+    @Before
+    public void setUp() {
+        this.history = new TransactionHistory();
+        this.columnarHistory = new TransactionHistory(new TransactionColumns());
+
+        // One egg sale every 20 minutes from midnight, and a wool sale at 2:30.
+        Customer ali = new Customer("Ali", 33651111, "UQ");
+        for (int i = 0; i < 12; i++) {
+            ali.getCart().addProduct(new Egg());
+            record(new Transaction(ali), MIDNIGHT.plus(Duration.ofMinutes(20 * i)));
+        }
+        ali.getCart().addProduct(new Wool());
+        ali.getCart().addProduct(new Milk());
+        record(new Transaction(ali), MIDNIGHT.plus(Duration.ofMinutes(150)));
+    }
+
+    private void record(Transaction transaction, Instant time) {
+        transaction.finalise(time);
+        history.recordTransaction(transaction);
+        columnarHistory.recordTransaction(transaction);
+    }
+
+    @Test
+    public void wholeHoursTest() {
+        Instant from = MIDNIGHT.plus(Duration.ofHours(1));
+        Instant to = MIDNIGHT.plus(Duration.ofHours(3));
+        for (TransactionHistory history : new TransactionHistory[] {history, columnarHistory}) {
+            assertEquals("Incorrect number of transactions", 7,
+                    history.getTotalTransactionsMade(from, to));
+            assertEquals("Incorrect products sold", 8, history.getTotalProductsSold(from, to));
+            assertEquals("Incorrect gross earnings",
+                    6 * Barcode.EGG.getBasePrice() + Barcode.WOOL.getBasePrice()
+                            + Barcode.MILK.getBasePrice(),
+                    history.getGrossEarnings(from, to));
+            assertEquals("Incorrect most popular product", Barcode.EGG,
+                    history.getMostPopularProduct(from, to));
+        }
+    }
+
+    @Test
+    public void partialHoursTest() {
+        // From 0:20 (inclusive) to 2:40 (exclusive) covers egg sales 1 to 7 and the wool sale.
+        Instant from = MIDNIGHT.plus(Duration.ofMinutes(20));
+        Instant to = MIDNIGHT.plus(Duration.ofMinutes(160));
+        for (TransactionHistory history : new TransactionHistory[] {history, columnarHistory}) {
+            assertEquals("Incorrect number of transactions", 8,
+                    history.getTotalTransactionsMade(from, to));
+            assertEquals("Incorrect products sold", 9, history.getTotalProductsSold(from, to));
+        }
+    }
+
+    @Test
+    public void partialHoursOutOfOrderTest() {
+        // Sales finalised out of order, so the period picks out scattered positions.
+        Customer bob = new Customer("Bob", 33652222, "QUT");
+        Instant hour = MIDNIGHT.plus(Duration.ofHours(5));
+        int[] minutes = {50, 10, 40, 5, 30, 55, 20};
+        for (int i = 0; i < minutes.length; i++) {
+            bob.getCart().addProduct(new Milk());
+            if (i % 2 == 1) {
+                bob.getCart().addProduct(new Egg());
+            }
+            Transaction transaction = i % 3 == 0
+                    ? new SpecialSaleTransaction(bob, Map.of(Barcode.MILK, 25))
+                    : new Transaction(bob);
+            record(transaction, hour.plus(Duration.ofMinutes(minutes[i])));
+        }
+
+        Instant from = hour.plus(Duration.ofMinutes(15));
+        Instant to = hour.plus(Duration.ofMinutes(45));
+        assertEquals("Incorrect number of transactions", 3,
+                columnarHistory.getTotalTransactionsMade(from, to));
+        assertEquals("Incorrect gross earnings", history.getGrossEarnings(from, to),
+                columnarHistory.getGrossEarnings(from, to));
+        assertEquals("Incorrect products sold", history.getTotalProductsSold(from, to),
+                columnarHistory.getTotalProductsSold(from, to));
+        assertEquals("Incorrect most popular product", Barcode.MILK,
+                columnarHistory.getMostPopularProduct(from, to));
+        assertEquals("Incorrect products sold", 3,
+                columnarHistory.getTotalProductsSold(from, to));
+    }
+
+    @Test
+    public void wholeHistoryTest() {
+        Instant from = MIDNIGHT.minus(Duration.ofDays(1));
+        Instant to = MIDNIGHT.plus(Duration.ofDays(1));
+        assertEquals("Incorrect gross earnings", history.getGrossEarnings(),
+                history.getGrossEarnings(from, to));
+        assertEquals("Incorrect products sold", history.getTotalProductsSold(),
+                columnarHistory.getTotalProductsSold(from, to));
+    }
+
+    @Test
+    public void emptyPeriodTest() {
+        Instant from = MIDNIGHT.plus(Duration.ofMinutes(21));
+        assertEquals("Empty period should have no transactions", 0,
+                history.getTotalTransactionsMade(from, from.plus(Duration.ofMinutes(10))));
+        assertNull("Empty period should have no popular product",
+                history.getMostPopularProduct(from, from));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void backwardsPeriodTest() {
+        history.getGrossEarnings(MIDNIGHT, MIDNIGHT.minusMillis(1));
+    }
+
+    @Test
+    public void mostPopularProductsTest() {
+        assertEquals("Incorrect ranking", List.of(Barcode.EGG, Barcode.MILK, Barcode.WOOL),
+                history.getMostPopularProducts(5));
+        assertEquals("Incorrect ranking", List.of(Barcode.EGG),
+                columnarHistory.getMostPopularProducts(1));
+    }
+
+    @Test
+    public void topCustomersTest() {
+        Customer bob = new Customer("Bob", 33652222, "QUT");
+        bob.getCart().addProduct(new Egg());
+        record(new Transaction(bob), MIDNIGHT);
+        assertEquals("Incorrect ranking", List.of(new Customer("Ali", 33651111, "UQ"), bob),
+                history.getTopCustomers(2));
+
+        // The customer's spending should follow them through a change of name.
+        bob.setName("Robert");
+        assertEquals("Incorrect spend after rename", Barcode.EGG.getBasePrice(),
+                history.getEstimatedSpend(new Customer("Robert", 33652222, "QUT")));
+        assertEquals("Old name should not be tracked", 0,
+                history.getEstimatedSpend(new Customer("Bob", 33652222, "QUT")));
+    }
+}
@@ -0,0 +1,282 @@
+package farm.sales;
+
+import farm.customer.Customer;
+import farm.inventory.product.Egg;
+import farm.inventory.product.Jam;
+import farm.inventory.product.Milk;
+import farm.inventory.product.data.Barcode;
+import farm.inventory.product.data.Quality;
+import farm.sales.transaction.CategorisedTransaction;
+import farm.sales.transaction.SpecialSaleTransaction;
+import farm.sales.transaction.Transaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class TransactionLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+    private Customer ali;
+    private Customer bob;
+
+    @Before
+    public void setUp() throws IOException {
+        this.path = folder.getRoot().toPath().resolve("sales.log");
+        this.ali = new Customer("Ali", 33651111, "UQ");
+        this.bob = new Customer("Bob", 33652222, "QUT");
+    }
+
+    private void recordSales(TransactionHistory history) {
+        Transaction basic = new Transaction(ali);
+        ali.getCart().addProduct(new Egg(Quality.GOLD));
+        ali.getCart().addProduct(new Milk());
+        ali.getCart().addProduct(new Egg(Quality.GOLD));
+        basic.finalise();
+        history.recordTransaction(basic);
+
+        Transaction categorised = new CategorisedTransaction(bob);
+        bob.getCart().addProduct(new Jam(Quality.IRIDIUM));
+        bob.getCart().addProduct(new Jam(Quality.IRIDIUM));
+        categorised.finalise();
+        history.recordTransaction(categorised);
+
+        Transaction sale = new SpecialSaleTransaction(ali, Map.of(Barcode.MILK, 25));
+        ali.getCart().addProduct(new Milk(Quality.SILVER));
+        ali.getCart().addProduct(new Egg());
+        sale.finalise();
+        history.recordTransaction(sale);
+    }
+
+    @Test
+    public void replayRebuildsHistoryTest() throws IOException {
+        TransactionHistory original = new TransactionHistory();
+        try (TransactionLog log = new TransactionLog(path, 2, 2)) {
+            TransactionHistory logged = new TransactionHistory(log);
+            recordSales(logged);
+            recordSales(original);
+        }
+
+        try (TransactionLog log = new TransactionLog(path)) {
+            TransactionHistory restored = new TransactionHistory(log);
+            assertEquals("Incorrect number of transactions", 3,
+                    restored.getTotalTransactionsMade());
+            assertEquals("Incorrect gross earnings", original.getGrossEarnings(),
+                    restored.getGrossEarnings());
+            assertEquals("Incorrect products sold", original.getTotalProductsSold(),
+                    restored.getTotalProductsSold());
+            assertEquals("Incorrect receipt", original.getLastTransaction().getReceipt(),
+                    restored.getLastTransaction().getReceipt());
+            assertEquals("Incorrect receipt",
+                    original.getHighestGrossingTransaction().getReceipt(),
+                    restored.getHighestGrossingTransaction().getReceipt());
+
+            List<Transaction> recovered = log.getRecoveredTransactions();
+            assertSame("Repeat customers should share an instance",
+                    recovered.get(0).getAssociatedCustomer(),
+                    recovered.get(2).getAssociatedCustomer());
+        }
+    }
+
+    @Test
+    public void partlyWrittenRecordDiscardedTest() throws IOException {
+        try (TransactionLog log = new TransactionLog(path)) {
+            recordSales(new TransactionHistory(log));
+        }
+        long complete = Files.size(path);
+
+        // Simulate the program stopping part way through writing the last record.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(complete - 5);
+        }
+
+        try (TransactionLog log = new TransactionLog(path)) {
+            TransactionHistory restored = new TransactionHistory(log);
+            assertEquals("Partly written record not discarded", 2,
+                    restored.getTotalTransactionsMade());
+
+            Transaction extra = new Transaction(bob);
+            bob.getCart().addProduct(new Egg());
+            extra.finalise();
+            restored.recordTransaction(extra);
+        }
+
+        try (TransactionLog log = new TransactionLog(path)) {
+            assertEquals("New records should follow the last complete record", 3,
+                    log.getRecoveredTransactions().size());
+        }
+    }
+
+    @Test
+    public void failedWriteTest() throws IOException {
+        FailingChannel channel = new FailingChannel(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+        try (TransactionLog log = new TransactionLog(channel, 2, 1)) {
+            TransactionHistory history = new TransactionHistory(log);
+            recordEgg(history, ali);
+            recordEgg(history, bob);
+            // Waits in the buffer to be written with the next record.
+            recordEgg(history, ali);
+
+            channel.failing = true;
+            try {
+                recordEgg(history, bob);
+                fail("Recording should fail if the log cannot be written");
+            } catch (UncheckedIOException expected) {
+                assertEquals("The failed transaction should not be recorded", 3,
+                        history.getTotalTransactionsMade());
+            }
+
+            channel.failing = false;
+            recordEgg(history, ali);
+            assertEquals("Incorrect number of transactions", 4,
+                    history.getTotalTransactionsMade());
+        }
+
+        try (TransactionLog log = new TransactionLog(path)) {
+            List<Transaction> recovered = log.getRecoveredTransactions();
+            assertEquals("Every recorded transaction should be kept, and no others", 4,
+                    recovered.size());
+            String[] names = {"Ali", "Bob", "Ali", "Ali"};
+            for (int i = 0; i < names.length; i++) {
+                assertEquals("Incorrect transaction kept", names[i],
+                        recovered.get(i).getAssociatedCustomer().getName());
+            }
+        }
+    }
+
+    private static void recordEgg(TransactionHistory history, Customer customer) {
+        Transaction transaction = new Transaction(customer);
+        customer.getCart().addProduct(new Egg());
+        transaction.finalise();
+        history.recordTransaction(transaction);
+    }
+
+    /**
+     * A file channel which can be made to fail part way through each write.
+     */
+    private static class FailingChannel extends FileChannel {
+        private final FileChannel channel;
+        private boolean failing;
+
+        private FailingChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!this.failing) {
+                return this.channel.write(src);
+            }
+            // Write a few bytes of the buffer before failing.
+            ByteBuffer part = src.duplicate();
+            part.limit(part.position() + Math.min(5, part.remaining()));
+            src.position(src.position() + this.channel.write(part));
+            throw new IOException("Disk full");
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return this.channel.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return this.channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return this.channel.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return this.channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            this.channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return this.channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            this.channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            this.channel.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target)
+                throws IOException {
+            return this.channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count)
+                throws IOException {
+            return this.channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return this.channel.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return this.channel.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return this.channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return this.channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return this.channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package farm.sales.transaction;
+
+import farm.customer.Customer;
+import farm.inventory.product.Egg;
+import farm.inventory.product.Milk;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionTest {
+    private Customer customer;
+    private Transaction transaction;
+
+    @Before
+    public void setUp() {
+        this.customer = new Customer("Ali", 33651111, "UQ");
+        this.transaction = new CategorisedTransaction(customer);
+        customer.getCart().addProduct(new Egg());
+        customer.getCart().addProduct(new Milk());
+    }
+
+    @Test
+    public void activeReceiptNotKeptTest() {
+        String active = transaction.getReceipt();
+        transaction.finalise();
+        assertNotEquals("Finalised receipt should replace the active one", active,
+                transaction.getReceipt());
+    }
+
+    @Test
+    public void receiptReusedTest() {
+        transaction.finalise();
+        assertSame("Receipt should be reused", transaction.getReceipt(), transaction.getReceipt());
+    }
+
+    @Test
+    public void receiptFollowsRenameTest() {
+        transaction.finalise();
+        String before = transaction.getReceipt();
+        customer.setName("Bob");
+        String after = transaction.getReceipt();
+        assertTrue("Receipt should thank the customer by their new name",
+                after.contains("Thank you for shopping with us, Bob!"));
+        assertEquals("Only the name should change", before.replace("Ali!", "Bob!"), after);
+    }
+}